@@ -0,0 +1,148 @@
+package ro.linic.cloud.master.authorizer.benchmark;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.entity.Authority;
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
+import ro.linic.cloud.master.authorizer.entity.MultiUser;
+import ro.linic.cloud.master.authorizer.entity.Role;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+
+/**
+ * Benchmarks the in-memory authorization model that runs on every request: resolving the authorities
+ * of a user within a tenant, filtering its roles, validating authority requirements and rendering
+ * authorities as text.
+ * <br>
+ * The user has <code>roleCount</code> roles spread round robin across <code>tenantCount</code> tenants;
+ * every tenth role is global. Authorities are assigned randomly with a fixed seed, so runs are comparable.
+ * Run with <code>mvn -P benchmark test-compile exec:exec</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationModelBenchmark {
+	private static final long SEED = 42L;
+	private static final String LIST_SEPARATOR = ", ";
+	
+	@Param({"1", "10", "100", "500"})
+	private int roleCount;
+	@Param({"1", "20", "200"})
+	private int tenantCount;
+	
+	private MultiUser user;
+	private List<Role> roles;
+	private int tenantId;
+	private I18n i18n;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		final Random random = new Random(SEED);
+		final List<Tenant> tenants = new ArrayList<>();
+		for (int i = 1; i <= tenantCount; i++) {
+			final Tenant tenant = new Tenant();
+			tenant.setId(i);
+			tenant.setName("Tenant " + i);
+			tenants.add(tenant);
+		}
+		
+		final Authority[] tenantAuthorities = Authority.ALL_TENANT_AUTHORITIES.toArray(Authority[]::new);
+		roles = new ArrayList<>();
+		for (int i = 0; i < roleCount; i++) {
+			final boolean global = i % 10 == 9;
+			final Set<Authority> authorities = EnumSet.noneOf(Authority.class);
+			for (final Authority authority : global ? Authority.values() : tenantAuthorities)
+				if (random.nextBoolean())
+					authorities.add(authority);
+			
+			final Role role = new Role();
+			role.setId(i + 1);
+			role.setName("Role " + (i + 1));
+			role.setTenant(global ? null : tenants.get(i % tenantCount));
+			role.setAuthorities(new HashSet<>(authorities));
+			roles.add(role);
+		}
+		
+		user = new MultiUser();
+		user.setId(1);
+		user.setRoles(new HashSet<>(roles));
+		tenantId = tenants.get(tenantCount / 2).getId();
+		
+		final ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+		messageSource.setBasename("messages");
+		LocaleContextHolder.setDefaultLocale(Locale.ENGLISH);
+		i18n = new I18n();
+		ReflectionTestUtils.setField(i18n, "messageSource", messageSource);
+	}
+	
+	@Benchmark
+	public void authoritiesOfTenantAndGlobal(final Blackhole bh) {
+		user.authoritiesOfTenantAndGlobal(tenantId).forEach(bh::consume);
+	}
+	
+	@Benchmark
+	public void rolesOfTenant(final Blackhole bh) {
+		user.rolesOfTenant(tenantId).forEach(bh::consume);
+	}
+	
+	/**
+	 * The requirement check of <code>RoleController.validateRole</code>, on the bitmask encoding
+	 */
+	@Benchmark
+	public void validateRoleRequirements(final Blackhole bh) {
+		for (final Role role : roles) {
+			final AuthoritySet invalidAuthorities = AuthoritySet.of(role.getAuthorities()).withMissingRequirements();
+			bh.consume(invalidAuthorities.isEmpty() ? AuthoritySet.EMPTY : invalidAuthorities.requirements());
+		}
+	}
+	
+	/**
+	 * The same requirement check walking {@link Authority#AUTHORITY_TO_REQUIRED_AUTH}, as a baseline
+	 */
+	@Benchmark
+	public void validateRoleRequirementsMap(final Blackhole bh) {
+		for (final Role role : roles) {
+			final Set<Authority> authorities = role.getAuthorities();
+			final Set<Authority> requiredAuthorities = new HashSet<>();
+			Authority.AUTHORITY_TO_REQUIRED_AUTH.forEach((authority, required) ->
+			{
+				if (authorities.contains(authority) && !authorities.containsAll(required))
+					requiredAuthorities.addAll(required);
+			});
+			bh.consume(requiredAuthorities);
+		}
+	}
+	
+	@Benchmark
+	public void authoritiesToText(final Blackhole bh) {
+		for (final Role role : roles)
+			bh.consume(Role.authoritiesToText(role.getAuthorities(), LIST_SEPARATOR, i18n));
+	}
+}
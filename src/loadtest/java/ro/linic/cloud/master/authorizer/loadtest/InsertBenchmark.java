@@ -0,0 +1,98 @@
+package ro.linic.cloud.master.authorizer.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Compares the two ways Hibernate can insert new tenants, replaying the statements it issues in each case:
+ * <ul>
+ * <li>identity - one <code>INSERT ... RETURNING id</code> round trip per row, as with <code>GenerationType.IDENTITY</code>,
+ * which disables JDBC batching</li>
+ * <li>batched - one <code>nextval</code> per <code>loadtest.insert.batch-size</code> rows(pooled sequence) and the inserts
+ * sent as JDBC batches, as with <code>GenerationType.SEQUENCE</code> and <code>hibernate.jdbc.batch_size</code></li>
+ * </ul>
+ * Every run is rolled back, so the target database is left unchanged; its schema must be migrated.
+ * Run with <code>mvn -P loadtest test-compile exec:java -Dloadtest.main=ro.linic.cloud.master.authorizer.loadtest.InsertBenchmark</code>.
+ * <br>
+ * System properties(defaults in brackets): loadtest.jdbc-url [jdbc:postgresql://localhost:5432/master-authorizer-loadtest],
+ * loadtest.jdbc-user [postgres], loadtest.jdbc-password [], loadtest.insert.rows [10000], loadtest.insert.batch-size [50],
+ * loadtest.insert.iterations [5]
+ */
+public class InsertBenchmark {
+	public static void main(final String[] args) throws SQLException {
+		final int rows = Integer.getInteger("loadtest.insert.rows", 10_000);
+		final int batchSize = Integer.getInteger("loadtest.insert.batch-size", 50);
+		final int iterations = Integer.getInteger("loadtest.insert.iterations", 5);
+		
+		try (Connection connection = DriverManager.getConnection(
+				System.getProperty("loadtest.jdbc-url", "jdbc:postgresql://localhost:5432/master-authorizer-loadtest"),
+				System.getProperty("loadtest.jdbc-user", "postgres"), System.getProperty("loadtest.jdbc-password", ""))) {
+			connection.setAutoCommit(false);
+			
+			// the first iteration is a warmup
+			for (int i = 0; i <= iterations; i++) {
+				final double identity = timed(connection, () -> insertIdentity(connection, rows));
+				final double batched = timed(connection, () -> insertBatched(connection, rows, batchSize));
+				if (i > 0)
+					System.out.printf("iteration %d: identity %10.0f rows/s   batched(%d) %10.0f rows/s   %5.1fx%n",
+							i, rows / identity, batchSize, rows / batched, identity / batched);
+			}
+		}
+	}
+	
+	private static void insertIdentity(final Connection connection, final int rows) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO tenant (name) VALUES (?) RETURNING id")) {
+			for (int i = 0; i < rows; i++) {
+				insert.setString(1, "Insert benchmark " + i);
+				try (ResultSet id = insert.executeQuery()) {
+					id.next();
+				}
+			}
+		}
+	}
+	
+	private static void insertBatched(final Connection connection, final int rows, final int batchSize) throws SQLException {
+		try (Statement sequence = connection.createStatement();
+				PreparedStatement insert = connection.prepareStatement("INSERT INTO tenant (id, name) VALUES (?, ?)")) {
+			long nextId = 0;
+			long maxId = -1;
+			for (int i = 0; i < rows; i++) {
+				if (nextId > maxId) {
+					try (ResultSet hi = sequence.executeQuery("SELECT nextval('tenant_id_seq')")) {
+						hi.next();
+						maxId = hi.getLong(1);
+						nextId = maxId - batchSize + 1;
+					}
+				}
+				insert.setLong(1, nextId++);
+				insert.setString(2, "Insert benchmark " + i);
+				insert.addBatch();
+				if ((i + 1) % batchSize == 0)
+					insert.executeBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+	
+	/**
+	 * @return the seconds the inserts took; they are rolled back afterwards
+	 */
+	private static double timed(final Connection connection, final Inserts inserts) throws SQLException {
+		final long start = System.nanoTime();
+		try {
+			inserts.run();
+			return (System.nanoTime() - start) / 1e9;
+		} finally {
+			connection.rollback();
+		}
+	}
+	
+	@FunctionalInterface
+	private interface Inserts {
+		void run() throws SQLException;
+	}
+}
@@ -0,0 +1,68 @@
+package ro.linic.cloud.master.authorizer.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the latencies and status codes of one scenario. Latencies are measured from the time a
+ * request was scheduled to be sent, not from when it was actually sent, so a stalled server shows up
+ * in the percentiles instead of silently lowering the request rate(coordinated omission).
+ */
+public class LatencyRecorder {
+	private final String scenario;
+	private long[] latencies = new long[1024];
+	private int count;
+	private final Map<Integer, Integer> statuses = new TreeMap<>();
+	private int errors;
+	private int dropped;
+	
+	public LatencyRecorder(final String scenario) {
+		this.scenario = scenario;
+	}
+	
+	public synchronized void record(final long latencyNanos, final int status) {
+		if (count == latencies.length)
+			latencies = Arrays.copyOf(latencies, count * 2);
+		latencies[count++] = latencyNanos;
+		statuses.merge(status, 1, Integer::sum);
+	}
+	
+	public synchronized void error() {
+		errors++;
+	}
+	
+	/**
+	 * A request could not be sent, because too many were already in flight
+	 */
+	public synchronized void dropped() {
+		dropped++;
+	}
+	
+	public synchronized Report report(final double seconds) {
+		final long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		return new Report(scenario, count, errors, dropped, count / seconds,
+				percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+				count == 0 ? 0 : sorted[count - 1] / 1_000_000d, new TreeMap<>(statuses));
+	}
+	
+	private static double percentile(final long[] sorted, final double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1_000_000d;
+	}
+	
+	/**
+	 * Latencies are in milliseconds
+	 */
+	public record Report(String scenario, int requests, int errors, int dropped, double throughput,
+			double p50, double p90, double p99, double p999, double max, Map<Integer, Integer> statuses) {
+		@Override
+		public String toString() {
+			return String.format("%-12s %8d req %8.1f req/s  p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms  errors %d  dropped %d  statuses %s",
+					scenario, requests, throughput, p50, p90, p99, p999, max, errors, dropped, statuses);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package ro.linic.cloud.master.authorizer.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ro.linic.cloud.master.authorizer.loadtest.LatencyRecorder.Report;
+
+/**
+ * Drives the running service at a fixed request rate(open model) and reports latency percentiles,
+ * throughput and status codes per scenario. Optionally loads a {@link SyntheticDataset} first.
+ * <br>
+ * Run with <code>mvn -P loadtest test-compile exec:java</code>; every setting is a system property, see
+ * {@link #main(String[])}. Reports are printed and written as JSON to <code>target/loadtest-result.json</code>.
+ * <br>
+ * Scenarios:
+ * <ul>
+ * <li>authorities - GET /user/{principal}/authorities with a client_credentials token; principals are a mix of
+ * user ids, external principals and unknown principals</li>
+ * <li>batch - POST /user/authorities:batch with <code>loadtest.batch-size</code> pairs</li>
+ * <li>user - GET /user, needs <code>loadtest.user-token</code>, a bearer token of a logged user</li>
+ * <li>role - POST /role in a random tenant, needs <code>loadtest.user-token</code> with CREATE_ROLES</li>
+ * </ul>
+ */
+public class LoadTest {
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	private final String baseUrl = prop("loadtest.base-url", "http://localhost:9000");
+	private final int users = intProp("loadtest.users", 10_000);
+	private final int tenants = intProp("loadtest.tenants", 500);
+	private final int rate = intProp("loadtest.rate", 200);
+	private final Duration duration = Duration.parse(prop("loadtest.duration", "PT30S"));
+	private final int maxInFlight = intProp("loadtest.max-in-flight", 1000);
+	private final int batchSize = intProp("loadtest.batch-size", 100);
+	private final String userToken = prop("loadtest.user-token", null);
+	
+	private final ExecutorService clientExecutor = Executors.newFixedThreadPool(intProp("loadtest.client-threads", 16));
+	private final HttpClient client = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofSeconds(5))
+			.executor(clientExecutor)
+			.build();
+	private final AtomicLong roleSequence = new AtomicLong(System.currentTimeMillis());
+	
+	/**
+	 * System properties(defaults in brackets):
+	 * <ul>
+	 * <li>loadtest.generate [false] - load the synthetic dataset before running; <b>deletes existing data</b></li>
+	 * <li>loadtest.jdbc-url [jdbc:postgresql://localhost:5432/master-authorizer-loadtest], loadtest.jdbc-user [postgres],
+	 * loadtest.jdbc-password []</li>
+	 * <li>loadtest.users [10000], loadtest.tenants [500], loadtest.roles [5000], loadtest.global-roles [5],
+	 * loadtest.roles-per-user [3] - dataset size; also used to pick principals and tenants</li>
+	 * <li>loadtest.base-url [http://localhost:9000], loadtest.client-id [authorities-reader],
+	 * loadtest.client-secret [authorities-reader], loadtest.user-token</li>
+	 * <li>loadtest.scenarios [authorities,batch,user,role], loadtest.rate [200 req/s], loadtest.duration [PT30S],
+	 * loadtest.warmup [PT5S], loadtest.max-in-flight [1000], loadtest.batch-size [100], loadtest.client-threads [16]</li>
+	 * </ul>
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (Boolean.parseBoolean(prop("loadtest.generate", "false")))
+			new SyntheticDataset(intProp("loadtest.users", 10_000), intProp("loadtest.tenants", 500), intProp("loadtest.roles", 5000),
+					intProp("loadtest.global-roles", 5), intProp("loadtest.roles-per-user", 3))
+			.generate(prop("loadtest.jdbc-url", "jdbc:postgresql://localhost:5432/master-authorizer-loadtest"),
+					prop("loadtest.jdbc-user", "postgres"), prop("loadtest.jdbc-password", ""));
+		
+		new LoadTest().run();
+	}
+	
+	private void run() throws Exception {
+		try {
+			runScenarios();
+		} finally {
+			clientExecutor.shutdownNow();
+		}
+	}
+	
+	private void runScenarios() throws Exception {
+		final String clientToken = clientCredentialsToken();
+		final Map<String, Supplier<HttpRequest>> scenarios = new LinkedHashMap<>();
+		scenarios.put("authorities", () -> authoritiesRequest(clientToken));
+		scenarios.put("batch", () -> batchRequest(clientToken));
+		scenarios.put("user", this::userRequest);
+		scenarios.put("role", this::roleRequest);
+		
+		final List<Report> reports = new ArrayList<>();
+		for (final String scenario : prop("loadtest.scenarios", String.join(",", scenarios.keySet())).split(",")) {
+			if (!scenarios.containsKey(scenario))
+				throw new IllegalArgumentException("Unknown scenario " + scenario);
+			if ((scenario.equals("user") || scenario.equals("role")) && userToken == null) {
+				System.out.println(scenario + ": skipped, loadtest.user-token is not set");
+				continue;
+			}
+			
+			drive(scenario, scenarios.get(scenario), Duration.parse(prop("loadtest.warmup", "PT5S")));
+			final Report report = drive(scenario, scenarios.get(scenario), duration);
+			System.out.println(report);
+			reports.add(report);
+		}
+		
+		final Path result = Path.of("target", "loadtest-result.json");
+		Files.createDirectories(result.getParent());
+		MAPPER.writerWithDefaultPrettyPrinter().writeValue(result.toFile(), Map.of(
+				"rate", rate, "durationSeconds", duration.toSeconds(), "users", users, "tenants", tenants, "reports", reports));
+		System.out.println("Results written to " + result.toAbsolutePath());
+	}
+	
+	/**
+	 * Sends one request every 1/rate seconds for the given duration, whatever the response times are
+	 */
+	private Report drive(final String scenario, final Supplier<HttpRequest> requests, final Duration runFor) throws InterruptedException {
+		final LatencyRecorder recorder = new LatencyRecorder(scenario);
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		final long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		final long start = System.nanoTime();
+		final AtomicLong tick = new AtomicLong();
+		
+		scheduler.scheduleAtFixedRate(() ->
+		{
+			final long intendedStart = start + tick.getAndIncrement() * periodNanos;
+			if (!inFlight.tryAcquire()) {
+				recorder.dropped();
+				return;
+			}
+			client.sendAsync(requests.get(), HttpResponse.BodyHandlers.discarding())
+			.whenComplete((response, error) ->
+			{
+				inFlight.release();
+				if (error != null)
+					recorder.error();
+				else
+					recorder.record(System.nanoTime() - intendedStart, response.statusCode());
+			});
+		}, 0, periodNanos, TimeUnit.NANOSECONDS);
+		
+		Thread.sleep(runFor.toMillis());
+		scheduler.shutdownNow();
+		// wait for the requests still in flight
+		inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS);
+		return recorder.report((System.nanoTime() - start) / 1e9);
+	}
+	
+	private HttpRequest authoritiesRequest(final String clientToken) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/user/" + URLEncoder.encode(randomPrincipal(), StandardCharsets.UTF_8) + "/authorities"))
+				.header("Authorization", "Bearer " + clientToken)
+				.header("X-TenantID", String.valueOf(randomTenant()))
+				.GET()
+				.build();
+	}
+	
+	private HttpRequest batchRequest(final String clientToken) {
+		final List<Map<String, Object>> pairs = new ArrayList<>(batchSize);
+		for (int i = 0; i < batchSize; i++)
+			pairs.add(Map.of("principal", randomPrincipal(), "tenantId", randomTenant()));
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/user/authorities:batch"))
+				.header("Authorization", "Bearer " + clientToken)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json(pairs)))
+				.build();
+	}
+	
+	private HttpRequest userRequest() {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/user"))
+				.header("Authorization", "Bearer " + userToken)
+				.GET()
+				.build();
+	}
+	
+	private HttpRequest roleRequest() {
+		final Map<String, Object> role = Map.of("name", "Load role " + roleSequence.incrementAndGet(), "authorities", List.of("VIEW_USERS"));
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/role"))
+				.header("Authorization", "Bearer " + userToken)
+				.header("X-TenantID", String.valueOf(randomTenant()))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json(role)))
+				.build();
+	}
+	
+	/**
+	 * 45% user ids, 45% external principals, 10% unknown principals
+	 */
+	private String randomPrincipal() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int userId = random.nextInt(1, users + 1);
+		final int kind = random.nextInt(100);
+		if (kind < 45)
+			return String.valueOf(userId);
+		if (kind < 90)
+			return SyntheticDataset.PRINCIPAL_PREFIX + userId;
+		return "unknown-" + random.nextInt(1_000_000);
+	}
+	
+	private int randomTenant() {
+		return ThreadLocalRandom.current().nextInt(1, tenants + 1);
+	}
+	
+	private String clientCredentialsToken() throws Exception {
+		final String credentials = prop("loadtest.client-id", "authorities-reader") + ":" + prop("loadtest.client-secret", "authorities-reader");
+		final HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/oauth2/token"))
+				.header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString("grant_type=client_credentials&scope=authorities.read"))
+				.build();
+		final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200)
+			throw new IllegalStateException("Could not get a client_credentials token: " + response.statusCode() + " " + response.body());
+		return MAPPER.readTree(response.body()).get("access_token").asText();
+	}
+	
+	private static String json(final Object value) {
+		try {
+			return MAPPER.writeValueAsString(value);
+		} catch (final Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	private static String prop(final String name, final String defaultValue) {
+		return System.getProperty(name, defaultValue);
+	}
+	
+	private static int intProp(final String name, final int defaultValue) {
+		return Integer.getInteger(name, defaultValue);
+	}
+}
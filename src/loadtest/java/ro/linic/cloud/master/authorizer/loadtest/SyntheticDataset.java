@@ -0,0 +1,103 @@
+package ro.linic.cloud.master.authorizer.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import ro.linic.cloud.master.authorizer.entity.Authority;
+
+/**
+ * Generates a synthetic dataset directly in Postgres with set based <code>generate_series</code> inserts,
+ * so millions of rows load in seconds instead of going through the API.
+ * <br>
+ * Shape: tenant <code>t</code> owns the roles <code>t, t + tenants, t + 2 * tenants, ...</code>; each user gets
+ * <code>rolesPerUser</code> roles from tenants spread across the whole range, plus one of the global roles for
+ * every thousandth user. User <code>u</code> has the external principal <code>principal-u</code> and the password
+ * <code>{noop}loadtest</code>. Role authorities are pseudo random, with the jsonb column and the bitmask in sync.
+ * <br>
+ * The schema must already exist(start the service once against the database, so Flyway migrates it).
+ * <b>All existing users, roles and tenants are deleted.</b>
+ */
+public class SyntheticDataset {
+	public static final String PRINCIPAL_PREFIX = "principal-";
+	
+	private final int users;
+	private final int tenants;
+	private final int roles;
+	private final int globalRoles;
+	private final int rolesPerUser;
+	
+	public SyntheticDataset(final int users, final int tenants, final int roles, final int globalRoles, final int rolesPerUser) {
+		if (roles < tenants)
+			throw new IllegalArgumentException("Every tenant needs at least one role: roles >= tenants");
+		
+		this.users = users;
+		this.tenants = tenants;
+		this.roles = roles;
+		this.globalRoles = globalRoles;
+		this.rolesPerUser = rolesPerUser;
+	}
+	
+	public void generate(final String jdbcUrl, final String username, final String password) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
+				Statement statement = connection.createStatement()) {
+			connection.setAutoCommit(false);
+			statement.execute("SET LOCAL synchronous_commit TO off");
+			
+			timed("truncate", () -> statement.execute("TRUNCATE multi_user_role, user_principal, role, multi_user, tenant RESTART IDENTITY CASCADE"));
+			
+			timed("tenant", () -> statement.execute("INSERT INTO tenant (id, name) "
+					+ "SELECT t, 'Tenant ' || t FROM generate_series(1, " + tenants + ") t"));
+			
+			final int tenantRoles = roles - globalRoles;
+			timed("role", () -> statement.execute("INSERT INTO role (id, name, tenant_id, is_system, authority_mask, authorities) "
+					+ "SELECT r, 'Role ' || r, CASE WHEN r <= " + tenantRoles + " THEN ((r - 1) % " + tenants + ") + 1 END, false, m.mask, "
+					+ "COALESCE((SELECT jsonb_agg(a.name ORDER BY a.bit) FROM unnest(" + authorityNames() + ") WITH ORDINALITY AS a(name, bit) "
+					+ "WHERE m.mask & (1::bigint << (a.bit::int - 1)) <> 0), '[]'::jsonb) "
+					+ "FROM generate_series(1, " + roles + ") r "
+					+ "CROSS JOIN LATERAL (SELECT ((hashint4(r) & 2147483647) % " + (1L << Authority.ALL_TENANT_AUTHORITIES.size()) + ")::bigint AS mask) m"));
+			
+			timed("multi_user", () -> statement.execute("INSERT INTO multi_user (id, display_name, password) "
+					+ "SELECT u, 'User ' || u, '{noop}loadtest' FROM generate_series(1, " + users + ") u"));
+			
+			timed("user_principal", () -> statement.execute("INSERT INTO user_principal (principal, multi_user_id) "
+					+ "SELECT '" + PRINCIPAL_PREFIX + "' || u, u FROM generate_series(1, " + users + ") u"));
+			
+			final int rolesPerTenant = Math.max(1, tenantRoles / tenants);
+			timed("multi_user_role", () -> statement.execute("INSERT INTO multi_user_role (multi_user_id, role_id) "
+					+ "SELECT u, ((u::bigint + k * 7919) % " + tenants + ") + 1 + " + tenants + " * ((u::bigint * 31 + k) % " + rolesPerTenant + ") "
+					+ "FROM generate_series(1, " + users + ") u CROSS JOIN generate_series(0, " + (rolesPerUser - 1) + ") k "
+					+ "ON CONFLICT DO NOTHING"));
+			if (globalRoles > 0)
+				timed("global roles", () -> statement.execute("INSERT INTO multi_user_role (multi_user_id, role_id) "
+						+ "SELECT u, " + tenantRoles + " + 1 + (u / 1000) % " + globalRoles + " "
+						+ "FROM generate_series(1000, " + users + ", 1000) u ON CONFLICT DO NOTHING"));
+			
+			timed("sequences", () -> statement.execute("SELECT setval(pg_get_serial_sequence('tenant', 'id'), " + tenants + "), "
+					+ "setval(pg_get_serial_sequence('role', 'id'), " + roles + "), "
+					+ "setval(pg_get_serial_sequence('multi_user', 'id'), " + users + ")"));
+			connection.commit();
+			
+			timed("analyze", () -> statement.execute("ANALYZE"));
+		}
+	}
+	
+	private static String authorityNames() {
+		final StringBuilder names = new StringBuilder("ARRAY[");
+		for (final Authority authority : Authority.values())
+			names.append(authority.ordinal() == 0 ? "'" : ",'").append(authority.name()).append('\'');
+		return names.append(']').toString();
+	}
+	
+	private static void timed(final String step, final SqlStep sql) throws SQLException {
+		final long start = System.nanoTime();
+		sql.run();
+		System.out.printf("dataset: %-16s %8d ms%n", step, (System.nanoTime() - start) / 1_000_000);
+	}
+	
+	@FunctionalInterface
+	private interface SqlStep {
+		void run() throws SQLException;
+	}
+}
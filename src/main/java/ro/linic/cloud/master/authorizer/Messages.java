@@ -21,4 +21,14 @@ public class Messages {
 	public static final String TenantExists = "TenantExists";
 	public static final String UserController_GlobalRoleNotAllowed = "UserController_GlobalRoleNotAllowed";
 	public static final String InviteTokenInvalid = "InviteTokenInvalid";
+	public static final String UserController_BatchTooLarge = "UserController_BatchTooLarge";
+	public static final String UserController_InviteCountInvalid = "UserController_InviteCountInvalid";
+	public static final String BulkheadFull = "BulkheadFull";
+	public static final String TenantDeleting = "TenantDeleting";
+	public static final String TenantController_SystemTenant = "TenantController_SystemTenant";
+	public static final String TenantController_DeletionMissing = "TenantController_DeletionMissing";
+	public static final String ClientExists = "ClientExists";
+	public static final String ClientMissing = "ClientMissing";
+	public static final String ClientController_InvalidClient = "ClientController_InvalidClient";
+	public static final String LoginBusy = "LoginBusy";
 }
@@ -0,0 +1,16 @@
+package ro.linic.cloud.master.authorizer.common;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+public class PersistenceUtils {
+	private PersistenceUtils() {}
+	
+	/**
+	 * @return whether the write failed because of the constraint or unique index named <code>constraintName</code>
+	 */
+	public static boolean violates(final DataIntegrityViolationException e, final String constraintName) {
+		return e.getCause() instanceof ConstraintViolationException violation &&
+				constraintName.equalsIgnoreCase(violation.getConstraintName());
+	}
+}
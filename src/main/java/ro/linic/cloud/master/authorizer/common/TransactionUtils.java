@@ -0,0 +1,44 @@
+package ro.linic.cloud.master.authorizer.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+	private TransactionUtils() {}
+	
+	/**
+	 * Runs the action immediately and, if a transaction is active, once more after it commits.
+	 * Used for cache evictions, so a concurrent reader cannot put back a stale value before the
+	 * change becomes visible to other transactions.
+	 */
+	public static void runNowAndAfterCommit(final Runnable action) {
+		action.run();
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+	}
+	
+	/**
+	 * Runs the action after the current read-write transaction commits, or immediately if there is none.
+	 * Used for cache puts, because a value read in a read-write transaction may include changes that are
+	 * later rolled back.
+	 */
+	public static void runAfterCommit(final Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			action.run();
+			return;
+		}
+		
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
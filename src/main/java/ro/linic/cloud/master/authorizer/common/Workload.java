@@ -0,0 +1,36 @@
+package ro.linic.cloud.master.authorizer.common;
+
+/**
+ * The kind of work the current thread does. Each workload other than {@link #DEFAULT} has its own
+ * bulkhead: a limit of concurrent requests and a separate connection pool, so one workload cannot
+ * exhaust the resources of another.
+ */
+public enum Workload {
+	DEFAULT,
+	/**
+	 * The authority lookups resource servers depend on
+	 */
+	AUTHORITIES,
+	/**
+	 * Tenant, role and user administration writes
+	 */
+	ADMIN;
+	
+	private static final ThreadLocal<Workload> CURRENT = ThreadLocal.withInitial(() -> DEFAULT);
+	
+	public static Workload current() {
+		return CURRENT.get();
+	}
+	
+	public static void set(final Workload workload) {
+		CURRENT.set(workload);
+	}
+	
+	public static void clear() {
+		CURRENT.remove();
+	}
+	
+	public String key() {
+		return name().toLowerCase();
+	}
+}
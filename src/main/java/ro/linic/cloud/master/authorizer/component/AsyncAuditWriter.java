@@ -0,0 +1,158 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.javers.core.Javers;
+import org.javers.repository.jql.InstanceIdDTO;
+import org.javers.repository.sql.JaversSqlRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.java.Log;
+import ro.linic.cloud.master.authorizer.component.Auditor.AuditEvent;
+
+/**
+ * Background writer of the <code>audit.mode=async</code> mode. Audit events are queued in a bounded queue and
+ * a single thread commits them to Javers in batches of up to <code>audit.batch-size</code>, one transaction
+ * per batch. Every event is committed on its own and in order, with the entity state and author captured when
+ * the change was audited, so the history is the same as in the sync mode. When a batch fails, its events are
+ * written again one by one, so only the events that fail on their own are lost; they are logged in full.
+ * <br>
+ * When the queue is full, producers wait up to <code>audit.offer-timeout</code> and then write their own
+ * events synchronously, so the audit trail is never dropped and a slow audit store slows down writers instead
+ * of growing the memory. Pending events are flushed on shutdown.
+ * <br>
+ * Metrics: <code>audit.queue.size</code>, <code>audit.events</code> tagged with
+ * <code>result=written|fallback|failed</code>.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.mode", havingValue = "async")
+@Log
+public class AsyncAuditWriter {
+	@Autowired private Javers javers;
+	@Autowired private JaversSqlRepository javersRepository;
+	@Autowired private PlatformTransactionManager transactionManager;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${audit.queue-capacity:10000}")
+	private int queueCapacity;
+	@Value("${audit.batch-size:500}")
+	private int batchSize;
+	@Value("${audit.offer-timeout:PT1S}")
+	private Duration offerTimeout;
+	
+	private BlockingQueue<AuditEvent> queue;
+	private TransactionTemplate batchTransaction;
+	private Thread writerThread;
+	private volatile boolean running;
+	private Counter written;
+	private Counter fallback;
+	private Counter failed;
+	
+	@PostConstruct
+	private void start() {
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		batchTransaction = new TransactionTemplate(transactionManager);
+		batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		
+		Gauge.builder("audit.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+		written = Counter.builder("audit.events").tag("result", "written").register(meterRegistry);
+		fallback = Counter.builder("audit.events").tag("result", "fallback").register(meterRegistry);
+		failed = Counter.builder("audit.events").tag("result", "failed").register(meterRegistry);
+		
+		running = true;
+		writerThread = new Thread(this::writeLoop, "audit-writer");
+		writerThread.start();
+	}
+	
+	@PreDestroy
+	private void stop() throws InterruptedException {
+		running = false;
+		writerThread.join();
+		
+		final List<AuditEvent> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		for (int from = 0; from < remaining.size(); from += batchSize)
+			write(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+		log.info("Audit writer stopped, flushed " + remaining.size() + " pending events");
+	}
+	
+	public void enqueue(final List<AuditEvent> events) {
+		for (final AuditEvent event : events) {
+			boolean queued = false;
+			try {
+				queued = running && queue.offer(event, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			
+			if (!queued) {
+				// backpressure: the producer pays for its own audit
+				write(List.of(event));
+				fallback.increment();
+			}
+		}
+	}
+	
+	private void writeLoop() {
+		final List<AuditEvent> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				final AuditEvent first = queue.poll(200, TimeUnit.MILLISECONDS);
+				if (first == null)
+					continue;
+				
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				write(batch);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+	
+	private void write(final List<AuditEvent> events) {
+		try {
+			batchTransaction.executeWithoutResult(status -> events.forEach(event ->
+			{
+				if (event.delete())
+					javers.commitShallowDeleteById(event.author(), InstanceIdDTO.instanceId(event.id(), event.type()),
+							event.properties());
+				else
+					javers.commit(event.author(), event.state(), event.properties());
+			}));
+			written.increment(events.size());
+		} catch (final RuntimeException e) {
+			// the ids Javers cached within the rolled back transaction were never stored
+			javersRepository.evictCache();
+			javersRepository.evictSequenceAllocationCache();
+			if (events.size() > 1) {
+				log.warning("Could not write a batch of " + events.size() + " audit events, writing them one by one: " + e);
+				events.forEach(event -> write(List.of(event)));
+				return;
+			}
+			
+			failed.increment();
+			log.log(Level.SEVERE, "Could not write the audit event " + events.get(0), e);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.core.support.DefaultRepositoryMetadata;
+import org.springframework.stereotype.Component;
+
+import ro.linic.cloud.master.authorizer.repository.Audited;
+
+/**
+ * Sends the entities saved or deleted through {@link Audited} repositories to the {@link Auditor}.
+ * Like the Javers Spring Data aspect, only the <code>save*</code> and <code>delete*</code> repository
+ * methods are seen; <code>deleteAll()</code> without arguments and modifying queries are not audited.
+ */
+@Aspect
+@Component
+public class AuditAspect {
+	@Autowired private Auditor auditor;
+	
+	@AfterReturning(value = "execution(public * save*(..)) && this(org.springframework.data.repository.Repository)", returning = "result")
+	public void afterSave(final JoinPoint joinPoint, final Object result) {
+		auditedDomainType(joinPoint).ifPresent(domainType -> entities(result, domainType).forEach(auditor::saved));
+	}
+	
+	@AfterReturning("execution(public * delete*(..)) && this(org.springframework.data.repository.Repository)")
+	public void afterDelete(final JoinPoint joinPoint) {
+		auditedDomainType(joinPoint).ifPresent(domainType ->
+		{
+			final String method = joinPoint.getSignature().getName();
+			if (method.equals("deleteById"))
+				auditor.deleted(domainType, joinPoint.getArgs()[0]);
+			else if (method.equals("deleteAllById") || method.equals("deleteAllByIdInBatch"))
+				elements(joinPoint.getArgs()[0]).forEach(id -> auditor.deleted(domainType, id));
+			else
+				Arrays.stream(joinPoint.getArgs())
+				.flatMap(arg -> entities(arg, domainType))
+				.forEach(auditor::deleted);
+		});
+	}
+	
+	private static Optional<Class<?>> auditedDomainType(final JoinPoint joinPoint) {
+		return Arrays.stream(AopProxyUtils.proxiedUserInterfaces(joinPoint.getThis()))
+				.filter(repositoryInterface -> repositoryInterface.isAnnotationPresent(Audited.class))
+				.findFirst()
+				.map(repositoryInterface -> new DefaultRepositoryMetadata(repositoryInterface).getDomainType());
+	}
+	
+	private static Stream<Object> entities(final Object value, final Class<?> domainType) {
+		return elements(value).filter(domainType::isInstance);
+	}
+	
+	private static Stream<Object> elements(final Object value) {
+		if (value instanceof Iterable<?> iterable)
+			return StreamSupport.stream(iterable.spliterator(), false).map(Object.class::cast);
+		if (value instanceof Optional<?> optional)
+			return optional.stream().map(Object.class::cast);
+		return Stream.ofNullable(value);
+	}
+}
@@ -0,0 +1,185 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.javers.core.Javers;
+import org.javers.repository.jql.InstanceIdDTO;
+import org.javers.spring.auditable.AuthorProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ReflectionUtils;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManagerFactory;
+import ro.linic.cloud.master.authorizer.repository.Audited;
+
+/**
+ * Commits the changes of {@link Audited} repositories to Javers, according to <code>audit.mode</code>:
+ * <ul>
+ * <li>sync(default) - each change is committed to Javers right away, within the request transaction</li>
+ * <li>async - each change is captured within the transaction, as a detached copy of the entity and the author
+ * of that moment, and only after the transaction commits handed to the {@link AsyncAuditWriter}, which commits
+ * the copies to Javers in background batches, in order</li>
+ * <li>off - nothing is audited</li>
+ * </ul>
+ * Bulk statements are not audited row by row; instead, they are summarized with {@link #commitProperty(String, String)}
+ * on the commit of the entity they belong to.
+ */
+@Component
+public class Auditor {
+	public enum Mode { SYNC, ASYNC, OFF }
+	
+	/**
+	 * A change to commit to Javers; <code>state</code> is a detached copy of the saved entity, taken when the
+	 * change was audited, and null for deletes
+	 */
+	public record AuditEvent(String author, Class<?> type, Object id, Object state, boolean delete, Map<String, String> properties) {}
+	
+	@Autowired private Javers javers;
+	@Autowired private AuthorProvider authorProvider;
+	@Autowired private EntityManagerFactory entityManagerFactory;
+	@Autowired(required = false) private AsyncAuditWriter asyncWriter;
+	
+	@Value("${audit.mode:sync}")
+	private Mode mode;
+	
+	private final Object propertiesKey = new Object();
+	
+	public void saved(final Object entity) {
+		switch (mode) {
+		case SYNC -> javers.commit(authorProvider.provide(), entity, properties());
+		case ASYNC -> capture(new AuditEvent(authorProvider.provide(), Hibernate.getClass(entity), id(entity),
+				detachedCopy(entity, new IdentityHashMap<>()), false, properties()));
+		case OFF -> {}
+		}
+	}
+	
+	public void deleted(final Object entity) {
+		switch (mode) {
+		case SYNC -> javers.commitShallowDelete(authorProvider.provide(), entity, properties());
+		case ASYNC -> capture(new AuditEvent(authorProvider.provide(), Hibernate.getClass(entity), id(entity), null, true, properties()));
+		case OFF -> {}
+		}
+	}
+	
+	public void deleted(final Class<?> type, final Object id) {
+		switch (mode) {
+		case SYNC -> javers.commitShallowDeleteById(authorProvider.provide(), InstanceIdDTO.instanceId(id, type), properties());
+		case ASYNC -> capture(new AuditEvent(authorProvider.provide(), type, id, null, true, properties()));
+		case OFF -> {}
+		}
+	}
+	
+	/**
+	 * Adds a Javers commit property to every change audited after this call, until the current transaction ends
+	 */
+	@SuppressWarnings("unchecked")
+	public void commitProperty(final String key, final String value) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+			throw new IllegalStateException("Commit properties need an active transaction");
+		
+		Map<String, String> properties = (Map<String, String>) TransactionSynchronizationManager.getResource(propertiesKey);
+		if (properties == null) {
+			properties = new HashMap<>();
+			TransactionSynchronizationManager.bindResource(propertiesKey, properties);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(final int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(propertiesKey);
+				}
+			});
+		}
+		properties.put(key, value);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<String, String> properties() {
+		final Map<String, String> properties = (Map<String, String>) TransactionSynchronizationManager.getResource(propertiesKey);
+		return properties == null ? Map.of() : Map.copyOf(properties);
+	}
+	
+	private Object id(final Object entity) {
+		return entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+	}
+	
+	/**
+	 * Copies the entity and the entities it references field by field, so the copy keeps the state of this moment
+	 * and no longer needs the persistence context: proxies are replaced by their targets and persistent
+	 * collections, loaded if needed, by plain ones. Other values are shared, as they are not changed in place.
+	 */
+	private static Object detachedCopy(final Object value, final Map<Object, Object> copies) {
+		final Object target = Hibernate.unproxy(value);
+		if (target instanceof Set<?> set)
+			return copyElements(set, new LinkedHashSet<>(), copies);
+		if (target instanceof Collection<?> collection)
+			return copyElements(collection, new ArrayList<>(), copies);
+		if (target instanceof Map<?, ?> map) {
+			final Map<Object, Object> copy = new LinkedHashMap<>();
+			map.forEach((key, element) -> copy.put(detachedCopy(key, copies), detachedCopy(element, copies)));
+			return copy;
+		}
+		if (target == null || !target.getClass().isAnnotationPresent(Entity.class))
+			return target;
+		if (copies.containsKey(target))
+			return copies.get(target);
+		
+		try {
+			final Object copy = ReflectionUtils.accessibleConstructor(target.getClass()).newInstance();
+			copies.put(target, copy);
+			ReflectionUtils.doWithFields(target.getClass(), field ->
+			{
+				ReflectionUtils.makeAccessible(field);
+				field.set(copy, detachedCopy(field.get(target), copies));
+			}, ReflectionUtils.COPYABLE_FIELDS);
+			return copy;
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not copy " + target.getClass() + " for auditing", e);
+		}
+	}
+	
+	private static Collection<Object> copyElements(final Collection<?> elements, final Collection<Object> copy,
+			final Map<Object, Object> copies) {
+		for (final Object element : elements)
+			copy.add(detachedCopy(element, copies));
+		return copy;
+	}
+	
+	/**
+	 * Buffers the event until the surrounding transaction commits; events of rolled back transactions are dropped
+	 */
+	@SuppressWarnings("unchecked")
+	private void capture(final AuditEvent event) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			asyncWriter.enqueue(List.of(event));
+			return;
+		}
+		
+		List<AuditEvent> events = (List<AuditEvent>) TransactionSynchronizationManager.getResource(this);
+		if (events == null) {
+			final List<AuditEvent> transactionEvents = new ArrayList<>();
+			TransactionSynchronizationManager.bindResource(this, transactionEvents);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(final int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(Auditor.this);
+					if (status == STATUS_COMMITTED)
+						asyncWriter.enqueue(transactionEvents);
+				}
+			});
+			events = transactionEvents;
+		}
+		events.add(event);
+	}
+}
@@ -0,0 +1,226 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import ro.linic.cloud.master.authorizer.common.TransactionUtils;
+import ro.linic.cloud.master.authorizer.config.RoutingDataSource;
+import ro.linic.cloud.master.authorizer.dto.PrincipalAuthoritiesDTO;
+import ro.linic.cloud.master.authorizer.dto.PrincipalTenantDTO;
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository.PrincipalUserId;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository.UserTenantAuthorityMask;
+import ro.linic.cloud.master.authorizer.repository.TenantDeletionRepository;
+import ro.linic.util.commons.NumberUtils;
+
+/**
+ * Resolves the authorities a user has within a tenant(tenant roles + global roles) and keeps
+ * them in a bounded, expiring in-memory cache keyed by (userId, tenantId).
+ * <br>
+ * Every write that changes the roles of a user or the authorities of a role must call one of the
+ * evict methods. Evictions are applied immediately and once more after the surrounding transaction
+ * commits. Each eviction increments a generation counter, and a value is cached only if no eviction
+ * ran since it was read, so a reader that read the old roles cannot put them back after the eviction.
+ * Values read within a read-write transaction are cached only after it commits. Values read from a replica
+ * are not cached at all: the replica may still return the state from before the eviction.
+ * <br>
+ * The evictions are also published on the {@link InvalidationBus}, so the other nodes evict the same entries.
+ * <br>
+ * A tenant whose deletion was requested from the {@link TenantDeleter} grants no authorities, not even through
+ * global roles; the deleter evicts the tenant when the deletion is requested and while it removes the role assignments.
+ * <br>
+ * Hit, miss and eviction counters are published as the <code>cache.*</code> metrics with the tag
+ * <code>cache=authorities</code>.
+ */
+@Component
+public class AuthorityResolver {
+	public static final String CACHE_NAME = "authorities";
+	private static final String USER_EVENT = "authorities.user";
+	private static final String TENANT_EVENT = "authorities.tenant";
+	private static final String ALL_TENANTS = "all";
+	
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private MultiUserRepository userRepo;
+	@Autowired private TenantDeletionRepository deletionRepo;
+	@Autowired private PrincipalResolver principalResolver;
+	@Autowired private InvalidationBus invalidationBus;
+	@Autowired private RoutingDataSource routingDataSource;
+	
+	@Value("${cache.authorities.max-size:100000}")
+	private long maxSize;
+	@Value("${cache.authorities.ttl:PT5M}")
+	private Duration ttl;
+	
+	private Cache<Key, AuthoritySet> cache;
+	private final AtomicLong evictions = new AtomicLong();
+	
+	@PostConstruct
+	private void init() {
+		cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+		
+		invalidationBus.register(CACHE_NAME, key ->
+		{
+			final String[] ids = key.split(":");
+			remove(new Key(Integer.parseInt(ids[0]), Integer.parseInt(ids[1])));
+		}, () -> removeTenant(null));
+		invalidationBus.register(USER_EVENT, userId -> removeUser(Integer.parseInt(userId)), () -> removeTenant(null));
+		invalidationBus.register(TENANT_EVENT, tenantId -> removeTenant(tenantId.equals(ALL_TENANTS) ? null : Integer.valueOf(tenantId)),
+				() -> removeTenant(null));
+	}
+	
+	/**
+	 * @param principal user id or external principal name, resolved through {@link PrincipalResolver}
+	 */
+	public AuthoritySet authorities(final String principal, final int tenantId) {
+		return principalResolver.userId(principal)
+				.map(userId -> authorities(userId, tenantId))
+				.orElse(AuthoritySet.EMPTY);
+	}
+	
+	/**
+	 * On a cache miss the authorities are read with one aggregate query over the roles of the user,
+	 * without loading the user or its roles into the persistence context.
+	 */
+	public AuthoritySet authorities(final int userId, final int tenantId) {
+		final Key key = new Key(userId, tenantId);
+		final AuthoritySet cached = cache.getIfPresent(key);
+		if (cached != null)
+			return cached;
+		
+		final long generation = evictions.get();
+		final AuthoritySet authorities = AuthoritySet.ofMask(userRepo.findAuthorityMask(userId, tenantId));
+		if (!routingDataSource.readsFromReplica())
+			TransactionUtils.runAfterCommit(() -> put(key, authorities, generation));
+		return authorities;
+	}
+	
+	/**
+	 * Resolves the authorities of many (principal, tenant) pairs with a fixed number of set based queries,
+	 * regardless of the number of pairs. Principals are resolved the same way as for a single lookup:
+	 * first as a user id, then as an external principal name. Unknown principals resolve to no authorities.
+	 * 
+	 * @return one result per request, in the request order
+	 */
+	public List<PrincipalAuthoritiesDTO> authorities(final List<PrincipalTenantDTO> requests) {
+		final Set<Integer> candidateIds = requests.stream()
+				.map(PrincipalTenantDTO::getPrincipal)
+				.filter(Objects::nonNull)
+				.map(NumberUtils::parseToInt)
+				.collect(Collectors.toSet());
+		final Set<Integer> existingIds = candidateIds.isEmpty() ? Set.of() : new HashSet<>(userRepo.findExistingIds(candidateIds));
+		
+		final Set<String> externalPrincipals = requests.stream()
+				.map(PrincipalTenantDTO::getPrincipal)
+				.filter(Objects::nonNull)
+				.filter(principal -> !existingIds.contains(NumberUtils.parseToInt(principal)))
+				.collect(Collectors.toSet());
+		final Map<String, Integer> externalPrincipalToId = externalPrincipals.isEmpty() ? Map.of() :
+			userRepo.findUserIdsByPrincipals(externalPrincipals).stream()
+			.collect(Collectors.toMap(PrincipalUserId::getPrincipal, PrincipalUserId::getUserId, (id1, id2) -> id1));
+		
+		final Map<String, Integer> principalToId = new HashMap<>(externalPrincipalToId);
+		requests.stream()
+				.map(PrincipalTenantDTO::getPrincipal)
+				.filter(Objects::nonNull)
+				.filter(principal -> existingIds.contains(NumberUtils.parseToInt(principal)))
+				.forEach(principal -> principalToId.put(principal, NumberUtils.parseToInt(principal)));
+		
+		final Map<Integer, Long> globalMasks = new HashMap<>();
+		final Map<Key, Long> tenantMasks = new HashMap<>();
+		final Set<Integer> deletingTenantIds = new HashSet<>();
+		if (!principalToId.isEmpty()) {
+			final Set<Integer> tenantIds = requests.stream().map(PrincipalTenantDTO::getTenantId).collect(Collectors.toSet());
+			deletingTenantIds.addAll(deletionRepo.findDeletingTenantIds(tenantIds));
+			for (final UserTenantAuthorityMask row : userRepo.findAuthorityMasks(new HashSet<>(principalToId.values()), tenantIds))
+				if (row.getTenantId() == null)
+					globalMasks.put(row.getUserId(), row.getAuthorityMask());
+				else
+					tenantMasks.put(new Key(row.getUserId(), row.getTenantId()), row.getAuthorityMask());
+		}
+		
+		return requests.stream()
+				.map(request -> {
+					final Integer userId = request.getPrincipal() == null ? null : principalToId.get(request.getPrincipal());
+					final long mask = userId == null || deletingTenantIds.contains(request.getTenantId()) ? 0L :
+							globalMasks.getOrDefault(userId, 0L) |
+							tenantMasks.getOrDefault(new Key(userId, request.getTenantId()), 0L);
+					return new PrincipalAuthoritiesDTO(request.getPrincipal(), request.getTenantId(), AuthoritySet.ofMask(mask).toSet());
+				})
+				.collect(Collectors.toList());
+	}
+	
+	public void evict(final int userId, final int tenantId) {
+		TransactionUtils.runNowAndAfterCommit(() -> remove(new Key(userId, tenantId)));
+		invalidationBus.publish(CACHE_NAME, userId + ":" + tenantId);
+	}
+	
+	public void evictUser(final int userId) {
+		TransactionUtils.runNowAndAfterCommit(() -> removeUser(userId));
+		invalidationBus.publish(USER_EVENT, String.valueOf(userId));
+	}
+	
+	/**
+	 * @param tenantId the tenant of the changed role; null for global roles, which affect every tenant
+	 */
+	public void evictTenant(final Integer tenantId) {
+		TransactionUtils.runNowAndAfterCommit(() -> removeTenant(tenantId));
+		invalidationBus.publish(TENANT_EVENT, tenantId == null ? ALL_TENANTS : String.valueOf(tenantId));
+	}
+	
+	/**
+	 * Caches the value unless an eviction ran since it was read at <code>generation</code>. An eviction
+	 * that runs during the put may not see the new entry, so the generation is checked again afterwards
+	 * and the entry is taken back if it changed.
+	 */
+	private void put(final Key key, final AuthoritySet authorities, final long generation) {
+		if (evictions.get() != generation)
+			return;
+		
+		cache.put(key, authorities);
+		if (evictions.get() != generation)
+			cache.asMap().remove(key, authorities);
+	}
+	
+	private void remove(final Key key) {
+		evictions.incrementAndGet();
+		cache.invalidate(key);
+	}
+	
+	private void removeUser(final int userId) {
+		evictions.incrementAndGet();
+		cache.asMap().keySet().removeIf(key -> key.userId() == userId);
+	}
+	
+	private void removeTenant(final Integer tenantId) {
+		evictions.incrementAndGet();
+		if (tenantId == null)
+			cache.invalidateAll();
+		else
+			cache.asMap().keySet().removeIf(key -> key.tenantId() == tenantId);
+	}
+	
+	private record Key(int userId, int tenantId) {}
+}
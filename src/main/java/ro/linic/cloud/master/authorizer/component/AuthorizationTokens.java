@@ -0,0 +1,97 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+/**
+ * The lookup rules shared by the {@link org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService}
+ * stores: the token types an authorization can be found by, and how long it must be kept
+ */
+final class AuthorizationTokens {
+	static final OAuth2TokenType STATE = new OAuth2TokenType(OAuth2ParameterNames.STATE);
+	
+	/**
+	 * The token classes, by the {@link OAuth2TokenType} value they are looked up with
+	 */
+	static final Map<String, Class<? extends OAuth2Token>> TYPES = new LinkedHashMap<>();
+	
+	static {
+		TYPES.put(OAuth2ParameterNames.CODE, OAuth2AuthorizationCode.class);
+		TYPES.put(OAuth2TokenType.ACCESS_TOKEN.getValue(), OAuth2AccessToken.class);
+		TYPES.put(OAuth2TokenType.REFRESH_TOKEN.getValue(), OAuth2RefreshToken.class);
+		TYPES.put(OidcParameterNames.ID_TOKEN, OidcIdToken.class);
+		TYPES.put(OAuth2ParameterNames.USER_CODE, OAuth2UserCode.class);
+		TYPES.put(OAuth2ParameterNames.DEVICE_CODE, OAuth2DeviceCode.class);
+	}
+	
+	private AuthorizationTokens() {
+	}
+	
+	/**
+	 * @return the tokens of the authorization, by token type
+	 */
+	static Map<String, OAuth2Authorization.Token<?>> tokens(final OAuth2Authorization authorization) {
+		final Map<String, OAuth2Authorization.Token<?>> tokens = new LinkedHashMap<>();
+		TYPES.forEach((type, tokenClass) ->
+		{
+			final OAuth2Authorization.Token<?> token = authorization.getToken(tokenClass);
+			if (token != null)
+				tokens.put(type, token);
+		});
+		return tokens;
+	}
+	
+	static String state(final OAuth2Authorization authorization) {
+		return authorization.getAttribute(OAuth2ParameterNames.STATE);
+	}
+	
+	/**
+	 * @return the state and the token values the authorization can be found by
+	 */
+	static Stream<String> lookupValues(final OAuth2Authorization authorization) {
+		return Stream.concat(Stream.ofNullable(state(authorization)),
+				tokens(authorization).values().stream().map(token -> token.getToken().getTokenValue()));
+	}
+	
+	/**
+	 * @param tokenType null matches the state and any token
+	 */
+	static boolean hasToken(final OAuth2Authorization authorization, final String token, final OAuth2TokenType tokenType) {
+		if (tokenType == null)
+			return token.equals(state(authorization)) || authorization.getToken(token) != null;
+		if (STATE.equals(tokenType))
+			return token.equals(state(authorization));
+		
+		final Class<? extends OAuth2Token> tokenClass = TYPES.get(tokenType.getValue());
+		final OAuth2Authorization.Token<?> found = tokenClass == null ? null : authorization.getToken(tokenClass);
+		return found != null && found.getToken().getTokenValue().equals(token);
+	}
+	
+	/**
+	 * @return when the last token of the authorization expires; an authorization without tokens, waiting for the
+	 * user consent, is kept for <code>pendingTtl</code>
+	 */
+	static Instant expiresAt(final OAuth2Authorization authorization, final Duration pendingTtl) {
+		return tokens(authorization).values().stream()
+				.map(token -> token.getToken().getExpiresAt())
+				.map(expiresAt -> expiresAt == null ? Instant.MAX : expiresAt)
+				.max(Comparator.naturalOrder())
+				.orElseGet(() -> Instant.now().plus(pendingTtl));
+	}
+}
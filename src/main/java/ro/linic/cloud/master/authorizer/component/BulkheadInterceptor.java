@@ -0,0 +1,112 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.controller.Bulkhead;
+
+/**
+ * Limits the concurrent requests of each {@link Bulkhead} workload to
+ * <code>bulkhead.&lt;workload&gt;.max-concurrent-calls</code>; a request waits up to
+ * <code>bulkhead.&lt;workload&gt;.max-wait</code> for a free slot and is then rejected with 503.
+ * While the request runs, {@link Workload#current()} is set, so its queries use the connection pool of the workload.
+ * <br>
+ * Metrics: <code>bulkhead.calls.active</code>, <code>bulkhead.calls.available</code> and the
+ * <code>bulkhead.calls.rejected</code> counter, tagged with <code>workload</code>.
+ */
+@Component
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+	private static final String PERMIT_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".permit";
+	
+	@Autowired private I18n i18n;
+	@Autowired private Environment environment;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	private final Map<Workload, Compartment> compartments = new EnumMap<>(Workload.class);
+	
+	@PostConstruct
+	private void init() {
+		compartments.put(Workload.AUTHORITIES, compartment(Workload.AUTHORITIES, 200, Duration.ofMillis(500)));
+		compartments.put(Workload.ADMIN, compartment(Workload.ADMIN, 10, Duration.ofSeconds(2)));
+	}
+	
+	@Override
+	public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler)
+			throws InterruptedException {
+		if (!(handler instanceof HandlerMethod handlerMethod))
+			return true;
+		
+		Bulkhead bulkhead = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), Bulkhead.class);
+		if (bulkhead == null)
+			bulkhead = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), Bulkhead.class);
+		if (bulkhead == null || !compartments.containsKey(bulkhead.value()))
+			return true;
+		
+		final Compartment compartment = compartments.get(bulkhead.value());
+		if (!compartment.permits.tryAcquire(compartment.maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+			compartment.rejected.increment();
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, i18n.msg(Messages.BulkheadFull));
+		}
+		
+		request.setAttribute(PERMIT_ATTRIBUTE, compartment);
+		Workload.set(bulkhead.value());
+		return true;
+	}
+	
+	@Override
+	public void afterConcurrentHandlingStarted(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+		release(request);
+	}
+	
+	@Override
+	public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response, final Object handler,
+			final Exception ex) {
+		release(request);
+	}
+	
+	private void release(final HttpServletRequest request) {
+		final Compartment compartment = (Compartment) request.getAttribute(PERMIT_ATTRIBUTE);
+		if (compartment != null) {
+			request.removeAttribute(PERMIT_ATTRIBUTE);
+			compartment.permits.release();
+		}
+		Workload.clear();
+	}
+	
+	private Compartment compartment(final Workload workload, final int defaultMaxCalls, final Duration defaultMaxWait) {
+		final String prefix = "bulkhead." + workload.key() + ".";
+		final int maxCalls = environment.getProperty(prefix + "max-concurrent-calls", Integer.class, defaultMaxCalls);
+		final Compartment compartment = new Compartment(new Semaphore(maxCalls),
+				environment.getProperty(prefix + "max-wait", Duration.class, defaultMaxWait),
+				Counter.builder("bulkhead.calls.rejected").tag("workload", workload.key()).register(meterRegistry));
+		
+		Gauge.builder("bulkhead.calls.available", compartment.permits, Semaphore::availablePermits)
+				.tag("workload", workload.key()).register(meterRegistry);
+		Gauge.builder("bulkhead.calls.active", compartment.permits, permits -> maxCalls - permits.availablePermits())
+				.tag("workload", workload.key()).register(meterRegistry);
+		return compartment;
+	}
+	
+	private record Compartment(Semaphore permits, Duration maxWait, Counter rejected) {}
+}
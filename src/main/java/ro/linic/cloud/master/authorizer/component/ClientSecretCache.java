@@ -0,0 +1,116 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Remembers the successful client secret verifications, so client_credentials token requests do not pay a full
+ * password hash verification every time.
+ * <br>
+ * Entries are keyed by the encoded secret of the client and hold an HMAC-SHA256 of the raw secret, computed with a
+ * random key generated at startup, so the raw secrets are never kept in memory. A presented secret matches when its
+ * HMAC equals the cached one, compared in constant time. Failed verifications are never cached. Entries expire
+ * <code>cache.client-secrets.ttl</code> after the verification and are invalidated by {@link JdbcClientRepository}
+ * when the secret of a client changes or the client is deleted; on the other nodes the new encoded secret simply
+ * misses the cache. Metrics are published with the tag <code>cache=client-secrets</code>.
+ */
+@Component
+public class ClientSecretCache {
+	public static final String CACHE_NAME = "client-secrets";
+	private static final String MAC = "HmacSHA256";
+	
+	@Autowired private PasswordEncoder passwordEncoder;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${cache.client-secrets.max-size:10000}")
+	private long maxSize;
+	@Value("${cache.client-secrets.ttl:PT5M}")
+	private Duration ttl;
+	
+	private SecretKeySpec key;
+	private Cache<String, byte[]> verified;
+	
+	@PostConstruct
+	private void init() {
+		final byte[] keyBytes = new byte[32];
+		new SecureRandom().nextBytes(keyBytes);
+		key = new SecretKeySpec(keyBytes, MAC);
+		
+		verified = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
+	}
+	
+	/**
+	 * @return the password encoder verifying the client secrets through this cache
+	 */
+	public PasswordEncoder encoder() {
+		return new PasswordEncoder() {
+			@Override
+			public String encode(final CharSequence rawPassword) {
+				return passwordEncoder.encode(rawPassword);
+			}
+			
+			@Override
+			public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+				return ClientSecretCache.this.matches(rawPassword, encodedPassword);
+			}
+			
+			@Override
+			public boolean upgradeEncoding(final String encodedPassword) {
+				return passwordEncoder.upgradeEncoding(encodedPassword);
+			}
+		};
+	}
+	
+	public boolean matches(final CharSequence rawSecret, final String encodedSecret) {
+		if (rawSecret == null || encodedSecret == null)
+			return passwordEncoder.matches(rawSecret, encodedSecret);
+		
+		final byte[] digest = digest(rawSecret);
+		final byte[] cached = verified.getIfPresent(encodedSecret);
+		if (cached != null && MessageDigest.isEqual(cached, digest))
+			return true;
+		
+		final boolean matches = passwordEncoder.matches(rawSecret, encodedSecret);
+		if (matches)
+			verified.put(encodedSecret, digest);
+		return matches;
+	}
+	
+	public void invalidate(final String encodedSecret) {
+		if (encodedSecret != null)
+			verified.invalidate(encodedSecret);
+	}
+	
+	private byte[] digest(final CharSequence rawSecret) {
+		try {
+			final Mac mac = Mac.getInstance(MAC);
+			mac.init(key);
+			return mac.doFinal(rawSecret.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
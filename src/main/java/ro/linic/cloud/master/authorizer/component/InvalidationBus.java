@@ -0,0 +1,310 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.java.Log;
+import ro.linic.cloud.master.authorizer.common.TransactionUtils;
+
+/**
+ * Spreads the cache evictions of one node to the other nodes through Postgres <code>LISTEN/NOTIFY</code> on the
+ * primary database, on the <code>cache_invalidation</code> channel.
+ * <br>
+ * Caches {@link #register(String, Consumer, Runnable) register} a handler per event type. Events are published
+ * after the surrounding transaction commits; a sender thread collects them for
+ * <code>invalidation.coalesce-window</code>, drops the duplicates and sends them in as few notifications as
+ * the payload limit allows. A burst of more than <code>invalidation.max-events</code> distinct events is sent as
+ * a single flush of all caches instead. The node that published an event has already evicted its own cache,
+ * so it ignores its own notifications. When sending fails, the events are lost, so the sender retries every
+ * <code>invalidation.reconnect-delay</code> to send a flush of all caches instead. Pending events are sent on shutdown.
+ * <br>
+ * The notifications are sent through the primary pool and received on a dedicated connection, outside the pools.
+ * When that connection is lost, notifications may have been missed, so all caches are flushed once the listener
+ * reconnects, which it retries every <code>invalidation.reconnect-delay</code>. The listener runs a query after every
+ * idle <code>invalidation.reconnect-delay</code>, so a connection that was silently dropped is detected as well.
+ * A notification that cannot be applied flushes all caches. <code>invalidation.enabled=false</code> turns the bus
+ * off for single node deployments.
+ * <br>
+ * Metrics: <code>invalidation.events</code> tagged with <code>direction=sent|received</code> and
+ * <code>invalidation.flushes</code>.
+ */
+@Component
+@Log
+public class InvalidationBus {
+	public static final String CHANNEL = "cache_invalidation";
+	public static final String FLUSH = "*";
+	public static final String LISTENER_NAME = "invalidation-listener";
+	// Postgres rejects payloads of 8000 bytes or more
+	private static final int MAX_PAYLOAD = 7900;
+	
+	@Autowired private DataSource dataSource;
+	@Autowired private DataSourceProperties dataSourceProperties;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${invalidation.enabled:true}")
+	private boolean enabled;
+	@Value("${invalidation.coalesce-window:PT0.05S}")
+	private Duration coalesceWindow;
+	@Value("${invalidation.max-events:1000}")
+	private int maxEvents;
+	@Value("${invalidation.reconnect-delay:PT5S}")
+	private Duration reconnectDelay;
+	
+	private record Handler(Consumer<String> evict, Runnable flush) {}
+	
+	private final String nodeId = UUID.randomUUID().toString();
+	private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+	private final LinkedBlockingQueue<String> outgoing = new LinkedBlockingQueue<>();
+	private volatile boolean running;
+	// written by the sender thread, read on shutdown once it stopped
+	private boolean sendFailed;
+	private Thread sender;
+	private Thread listener;
+	private Counter sent;
+	private Counter received;
+	private Counter flushes;
+	
+	@PostConstruct
+	private void start() {
+		sent = Counter.builder("invalidation.events").tag("direction", "sent").register(meterRegistry);
+		received = Counter.builder("invalidation.events").tag("direction", "received").register(meterRegistry);
+		flushes = meterRegistry.counter("invalidation.flushes");
+		if (!enabled)
+			return;
+		
+		running = true;
+		sender = new Thread(this::sendLoop, "invalidation-sender");
+		sender.setDaemon(true);
+		sender.start();
+		listener = new Thread(this::listenLoop, LISTENER_NAME);
+		listener.setDaemon(true);
+		listener.start();
+	}
+	
+	@PreDestroy
+	private void stop() throws InterruptedException {
+		if (!running)
+			return;
+		
+		running = false;
+		sender.interrupt();
+		listener.interrupt();
+		sender.join(TimeUnit.SECONDS.toMillis(5));
+		listener.join(TimeUnit.SECONDS.toMillis(5));
+		
+		final Set<String> remaining = new LinkedHashSet<>();
+		outgoing.drainTo(remaining);
+		if (sendFailed)
+			remaining.add(FLUSH);
+		if (remaining.isEmpty())
+			return;
+		
+		try {
+			sendCoalesced(remaining);
+			log.info("Cache invalidation bus stopped, sent " + remaining.size() + " pending events");
+		} catch (final SQLException | RuntimeException e) {
+			log.log(Level.WARNING, "Could not send the pending cache invalidation events on shutdown", e);
+		}
+	}
+	
+	/**
+	 * @param type the event type, without ':'
+	 * @param evict evicts the entries of an event published on another node, with its argument
+	 * @param flush evicts everything, when events may have been missed
+	 */
+	public void register(final String type, final Consumer<String> evict, final Runnable flush) {
+		handlers.put(type, new Handler(evict, flush));
+	}
+	
+	/**
+	 * Sends the event to the other nodes once the current transaction commits, or right away if there is none
+	 */
+	public void publish(final String type, final String argument) {
+		if (running)
+			TransactionUtils.runAfterCommit(() -> outgoing.add(type + ":" + argument));
+	}
+	
+	private void sendLoop() {
+		while (running) {
+			try {
+				if (sendFailed) {
+					Thread.sleep(reconnectDelay.toMillis());
+					// the flush covers everything published so far
+					outgoing.clear();
+					send(Set.of(FLUSH));
+					log.info("Cache invalidation events sent again, flushed the caches of the other nodes");
+					sendFailed = false;
+					continue;
+				}
+				
+				final String first = outgoing.take();
+				try {
+					Thread.sleep(coalesceWindow.toMillis());
+				} catch (final InterruptedException e) {
+					// stopping; the event is sent on shutdown
+					outgoing.add(first);
+					throw e;
+				}
+				
+				final Set<String> events = new LinkedHashSet<>();
+				events.add(first);
+				outgoing.drainTo(events);
+				sendCoalesced(events);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (final SQLException | RuntimeException e) {
+				// the other nodes may still be connected and would never learn about the lost events
+				if (!sendFailed)
+					log.log(Level.WARNING, "Could not send the cache invalidation events, retrying every " + reconnectDelay
+							+ " to flush the caches of the other nodes", e);
+				sendFailed = true;
+			}
+		}
+	}
+	
+	private void sendCoalesced(final Set<String> events) throws SQLException {
+		send(events.size() > maxEvents || events.contains(FLUSH) ? Set.of(FLUSH) : events);
+	}
+	
+	private void send(final Set<String> events) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+			StringBuilder payload = new StringBuilder(nodeId);
+			for (final String event : events) {
+				if (payload.length() + event.length() + 1 > MAX_PAYLOAD) {
+					notify(notify, payload.toString());
+					payload = new StringBuilder(nodeId);
+				}
+				payload.append('\n').append(event);
+			}
+			notify(notify, payload.toString());
+		}
+		sent.increment(events.size());
+	}
+	
+	private static void notify(final PreparedStatement notify, final String payload) throws SQLException {
+		notify.setString(1, CHANNEL);
+		notify.setString(2, payload);
+		notify.execute();
+	}
+	
+	private void listenLoop() {
+		boolean reconnecting = false;
+		while (running) {
+			try (Connection connection = listenerConnection()) {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("LISTEN " + CHANNEL);
+				}
+				if (reconnecting) {
+					log.info("Cache invalidation listener reconnected, flushing all caches");
+					flushAll();
+					reconnecting = false;
+				}
+				
+				final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+				while (running) {
+					final PGNotification[] notifications = pgConnection.getNotifications((int) reconnectDelay.toMillis());
+					if (notifications == null || notifications.length == 0)
+						keepAlive(connection);
+					else
+						for (final PGNotification notification : notifications)
+							applyOrFlush(notification.getParameter());
+				}
+			} catch (final SQLException | RuntimeException e) {
+				if (!running)
+					return;
+				if (!reconnecting)
+					log.log(Level.WARNING, "Cache invalidation listener disconnected, retrying every " + reconnectDelay, e);
+				reconnecting = true;
+				try {
+					Thread.sleep(reconnectDelay.toMillis());
+				} catch (final InterruptedException ie) {
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Waiting for notifications sends nothing, so a dropped connection would go unnoticed without a query
+	 */
+	private static void keepAlive(final Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("SELECT 1");
+		}
+	}
+	
+	private void applyOrFlush(final String payload) {
+		try {
+			apply(payload);
+		} catch (final RuntimeException e) {
+			// some of the evictions may not have been applied
+			log.log(Level.WARNING, "Could not apply the cache invalidation notification, flushing all caches: " + payload, e);
+			flushAll();
+		}
+	}
+	
+	private void apply(final String payload) {
+		final String[] lines = payload.split("\n");
+		if (lines[0].equals(nodeId))
+			return;
+		
+		for (int i = 1; i < lines.length; i++) {
+			received.increment();
+			if (lines[i].equals(FLUSH)) {
+				flushAll();
+				return;
+			}
+			
+			final int separator = lines[i].indexOf(':');
+			final Handler handler = separator < 0 ? null : handlers.get(lines[i].substring(0, separator));
+			if (handler != null)
+				handler.evict().accept(lines[i].substring(separator + 1));
+		}
+	}
+	
+	private void flushAll() {
+		handlers.values().forEach(handler -> handler.flush().run());
+		flushes.increment();
+	}
+	
+	private Connection listenerConnection() throws SQLException {
+		final Properties properties = new Properties();
+		if (dataSourceProperties.determineUsername() != null)
+			properties.setProperty("user", dataSourceProperties.determineUsername());
+		if (dataSourceProperties.determinePassword() != null)
+			properties.setProperty("password", dataSourceProperties.determinePassword());
+		properties.setProperty("ApplicationName", LISTENER_NAME);
+		// bounds the keep alive query on a connection that was silently dropped; in seconds
+		properties.setProperty("socketTimeout", String.valueOf(Math.max(1, reconnectDelay.toSeconds())));
+		return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+	}
+}
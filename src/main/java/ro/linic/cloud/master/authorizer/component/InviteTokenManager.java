@@ -0,0 +1,172 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import ro.linic.cloud.master.authorizer.entity.InviteToken;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenUseRepository;
+import ro.linic.util.commons.PasswordGenerator;
+
+/**
+ * Issues and verifies invite tokens, according to <code>invite.token-mode</code>:
+ * <ul>
+ * <li>stored(default) - the token is a random string pointing to an {@link InviteToken} row, deleted on acceptance</li>
+ * <li>signed - the token carries the tenant, roles and expiry itself, signed with HMAC-SHA256 using
+ * <code>invite.signing-key</code>(base64); issuing and reading it need no database access, and acceptance
+ * only records the token signature until expiry, so it cannot be accepted twice</li>
+ * </ul>
+ * The signed mode requires the signing key, so the application fails to start without it.
+ */
+@Component
+public class InviteTokenManager {
+	public enum Mode { STORED, SIGNED }
+	
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+	
+	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private InviteTokenUseRepository tokenUseRepo;
+	@Autowired private ObjectMapper objectMapper;
+	
+	@Value("${invite.token-mode:stored}")
+	private Mode mode;
+	@Value("${invite.signing-key:}")
+	private String signingKey;
+	
+	private final SecureRandom random = new SecureRandom();
+	private SecretKeySpec key;
+	
+	@PostConstruct
+	private void init() {
+		if (mode != Mode.SIGNED)
+			return;
+		
+		if (signingKey.isBlank())
+			throw new IllegalStateException("invite.signing-key is required with invite.token-mode=signed");
+		
+		key = new SecretKeySpec(Base64.getDecoder().decode(signingKey), ALGORITHM);
+	}
+	
+	public String issue(final Tenant tenant, final Set<Long> roleIds) {
+		return issue(tenant, roleIds, 1).get(0);
+	}
+	
+	/**
+	 * Issues <code>count</code> invites to the same roles; in stored mode they are persisted with batched inserts
+	 */
+	public List<String> issue(final Tenant tenant, final Set<Long> roleIds, final int count) {
+		final List<InviteToken> tokens = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final InviteToken token = new InviteToken();
+			token.setTenant(tenant);
+			token.setRoles(new HashSet<>(roleIds));
+			token.setToken(mode == Mode.STORED ? PasswordGenerator.withDefaults().generate(32) : sign(token));
+			tokens.add(token);
+		}
+		
+		if (mode == Mode.STORED)
+			tokenRepo.saveAll(tokens);
+		return tokens.stream().map(InviteToken::getToken).toList();
+	}
+	
+	private String sign(final InviteToken token) {
+		final Claims claims = new Claims(ENCODER.encodeToString(randomBytes(12)), token.getTenant().getId(),
+				token.getTenant().getName(), token.getRoles(), token.getExpiryDate().getEpochSecond());
+		try {
+			final String payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+			return payload + "." + sign(payload);
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * @return the invite, possibly expired; empty if the token is unknown or its signature is invalid.
+	 * Signed tokens are returned even if they were already accepted; {@link #consume(InviteToken)} rejects them.
+	 */
+	public Optional<InviteToken> find(final String token) {
+		if (mode == Mode.STORED)
+			return tokenRepo.findById(token);
+		
+		final int separator = token.indexOf('.');
+		if (separator < 0)
+			return Optional.empty();
+		
+		final String payload = token.substring(0, separator);
+		final byte[] signature = token.substring(separator + 1).getBytes(StandardCharsets.US_ASCII);
+		if (!MessageDigest.isEqual(signature, sign(payload).getBytes(StandardCharsets.US_ASCII)))
+			return Optional.empty();
+		
+		try {
+			final Claims claims = objectMapper.readValue(DECODER.decode(payload), Claims.class);
+			final Tenant tenant = new Tenant();
+			tenant.setId(claims.tenantId());
+			tenant.setName(claims.tenantName());
+			
+			final InviteToken invite = new InviteToken();
+			invite.setToken(token);
+			invite.setTenant(tenant);
+			invite.setRoles(new HashSet<>(claims.roles()));
+			invite.setExpiryDate(Instant.ofEpochSecond(claims.expiresAt()));
+			return Optional.of(invite);
+		} catch (final IOException | IllegalArgumentException e) {
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Marks the invite as accepted, within the current transaction
+	 * 
+	 * @return false if the invite was already accepted
+	 */
+	public boolean consume(final InviteToken invite) {
+		if (mode == Mode.STORED) {
+			tokenRepo.delete(invite);
+			return true;
+		}
+		
+		final String signature = invite.getToken().substring(invite.getToken().indexOf('.') + 1);
+		return tokenUseRepo.markUsed(signature, invite.getExpiryDate()) == 1;
+	}
+	
+	private String sign(final String payload) {
+		try {
+			final Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			return ENCODER.encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private byte[] randomBytes(final int length) {
+		final byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+	
+	private record Claims(String jti, int tenantId, String tenantName, Set<Long> roles, long expiresAt) {}
+}
@@ -0,0 +1,213 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import ro.linic.cloud.master.authorizer.entity.StoredAuthorization;
+import ro.linic.cloud.master.authorizer.entity.StoredToken;
+import ro.linic.cloud.master.authorizer.repository.StoredAuthorizationRepository;
+
+/**
+ * Keeps the authorizations in the database, shared by all nodes, for <code>authorization.store=jdbc</code>.
+ * <br>
+ * Tokens are looked up by the SHA-256 of their value, which is the primary key of the {@link StoredToken}, and the
+ * authorization is loaded together with its tokens in one query. Expired authorizations are purged in chunks by
+ * {@link JobScheduler#removeExpiredAuthorizations()}. The lookups are timed by <code>authorization.store.lookup</code>
+ * with the tag <code>store=jdbc</code>.
+ */
+public class JdbcAuthorizationStore implements OAuth2AuthorizationService {
+	private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+	
+	@Autowired private StoredAuthorizationRepository authorizationRepo;
+	@Autowired private RegisteredClientRepository clientRepo;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${authorization.pending-ttl:PT30M}")
+	private Duration pendingTtl;
+	
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private Timer lookups;
+	
+	@PostConstruct
+	private void init() {
+		objectMapper.registerModules(SecurityJackson2Modules.getModules(getClass().getClassLoader()));
+		objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+		lookups = meterRegistry.timer("authorization.store.lookup", "store", "jdbc");
+	}
+	
+	@Override
+	@Transactional
+	public void save(final OAuth2Authorization authorization) {
+		final StoredAuthorization stored = authorizationRepo.findWithTokensById(authorization.getId())
+				.orElseGet(StoredAuthorization::new);
+		stored.setId(authorization.getId());
+		stored.setRegisteredClientId(authorization.getRegisteredClientId());
+		stored.setPrincipalName(authorization.getPrincipalName());
+		stored.setAuthorizationGrantType(authorization.getAuthorizationGrantType().getValue());
+		stored.setAuthorizedScopes(StringUtils.collectionToCommaDelimitedString(authorization.getAuthorizedScopes()));
+		stored.setAttributes(write(authorization.getAttributes()));
+		final String state = AuthorizationTokens.state(authorization);
+		stored.setStateHash(state == null ? null : hash(state));
+		stored.setExpiresAt(AuthorizationTokens.expiresAt(authorization, pendingTtl));
+		
+		// keep the rows of the unchanged tokens, so only new tokens are inserted
+		final Map<String, StoredToken> previousTokens = stored.getTokens().stream()
+				.collect(Collectors.toMap(StoredToken::getValueHash, Function.identity()));
+		stored.getTokens().clear();
+		AuthorizationTokens.tokens(authorization).forEach((type, token) ->
+		{
+			final String valueHash = hash(token.getToken().getTokenValue());
+			final StoredToken storedToken = previousTokens.getOrDefault(valueHash, new StoredToken());
+			storedToken.setValueHash(valueHash);
+			storedToken.setAuthorization(stored);
+			storedToken.setTokenType(type);
+			storedToken.setTokenValue(token.getToken().getTokenValue());
+			storedToken.setIssuedAt(token.getToken().getIssuedAt());
+			storedToken.setExpiresAt(token.getToken().getExpiresAt());
+			storedToken.setMetadata(write(token.getMetadata()));
+			if (token.getToken() instanceof final OAuth2AccessToken accessToken)
+				storedToken.setScopes(StringUtils.collectionToCommaDelimitedString(accessToken.getScopes()));
+			stored.getTokens().add(storedToken);
+		});
+		
+		if (stored.isNew())
+			authorizationRepo.save(stored);
+	}
+	
+	@Override
+	@Transactional
+	public void remove(final OAuth2Authorization authorization) {
+		authorizationRepo.deleteById(authorization.getId());
+	}
+	
+	/**
+	 * Not read-only, so a code or token is found right after it was issued, on the primary instead of a lagging replica
+	 */
+	@Override
+	@Transactional
+	public OAuth2Authorization findById(final String id) {
+		return lookups.record(() -> authorizationRepo.findWithTokensById(id).map(this::toAuthorization).orElse(null));
+	}
+	
+	/**
+	 * Not read-only, for the same reason as {@link #findById(String)}
+	 */
+	@Override
+	@Transactional
+	public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+		return lookups.record(() ->
+		{
+			final String valueHash = hash(token);
+			Optional<StoredAuthorization> stored = Optional.empty();
+			if (!AuthorizationTokens.STATE.equals(tokenType))
+				stored = authorizationRepo.findByTokenHash(valueHash)
+						.filter(found -> tokenType == null || found.getTokens().stream()
+								.anyMatch(t -> t.getValueHash().equals(valueHash) && t.getTokenType().equals(tokenType.getValue())));
+			if (stored.isEmpty() && (tokenType == null || AuthorizationTokens.STATE.equals(tokenType)))
+				stored = authorizationRepo.findFirstByStateHash(valueHash);
+			return stored.map(this::toAuthorization).orElse(null);
+		});
+	}
+	
+	private OAuth2Authorization toAuthorization(final StoredAuthorization stored) {
+		// the tokens of a deleted client are no longer valid
+		final RegisteredClient client = clientRepo.findById(stored.getRegisteredClientId());
+		if (client == null)
+			return null;
+		
+		final OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(client)
+				.id(stored.getId())
+				.principalName(stored.getPrincipalName())
+				.authorizationGrantType(new AuthorizationGrantType(stored.getAuthorizationGrantType()))
+				.authorizedScopes(StringUtils.commaDelimitedListToSet(stored.getAuthorizedScopes()))
+				.attributes(attributes -> attributes.putAll(read(stored.getAttributes())));
+		for (final StoredToken storedToken : stored.getTokens()) {
+			final Map<String, Object> metadata = read(storedToken.getMetadata());
+			builder.token(toToken(storedToken, metadata), tokenMetadata -> tokenMetadata.putAll(metadata));
+		}
+		return builder.build();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static OAuth2Token toToken(final StoredToken stored, final Map<String, Object> metadata) {
+		final Class<? extends OAuth2Token> tokenClass = AuthorizationTokens.TYPES.get(stored.getTokenType());
+		if (tokenClass == OAuth2AuthorizationCode.class)
+			return new OAuth2AuthorizationCode(stored.getTokenValue(), stored.getIssuedAt(), stored.getExpiresAt());
+		if (tokenClass == OAuth2AccessToken.class)
+			return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, stored.getTokenValue(), stored.getIssuedAt(),
+					stored.getExpiresAt(), StringUtils.commaDelimitedListToSet(stored.getScopes()));
+		if (tokenClass == OAuth2RefreshToken.class)
+			return new OAuth2RefreshToken(stored.getTokenValue(), stored.getIssuedAt(), stored.getExpiresAt());
+		if (tokenClass == OidcIdToken.class)
+			return new OidcIdToken(stored.getTokenValue(), stored.getIssuedAt(), stored.getExpiresAt(),
+					(Map<String, Object>) metadata.get(OAuth2Authorization.Token.CLAIMS_METADATA_NAME));
+		if (tokenClass == OAuth2UserCode.class)
+			return new OAuth2UserCode(stored.getTokenValue(), stored.getIssuedAt(), stored.getExpiresAt());
+		if (tokenClass == OAuth2DeviceCode.class)
+			return new OAuth2DeviceCode(stored.getTokenValue(), stored.getIssuedAt(), stored.getExpiresAt());
+		throw new DataRetrievalFailureException("Unknown token type " + stored.getTokenType());
+	}
+	
+	private String write(final Map<String, Object> map) {
+		try {
+			return objectMapper.writeValueAsString(map);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	private Map<String, Object> read(final String json) {
+		if (json == null)
+			return Map.of();
+		
+		try {
+			return objectMapper.readValue(json, MAP_TYPE);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	private static String hash(final String value) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
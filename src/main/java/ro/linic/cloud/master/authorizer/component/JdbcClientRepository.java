@@ -0,0 +1,308 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.oauth2.server.servlet.OAuth2AuthorizationServerProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.java.Log;
+import ro.linic.cloud.master.authorizer.common.TransactionUtils;
+import ro.linic.cloud.master.authorizer.entity.StoredClient;
+import ro.linic.cloud.master.authorizer.repository.StoredClientRepository;
+
+/**
+ * The registered clients, stored as {@link StoredClient} rows and managed through
+ * {@link ro.linic.cloud.master.authorizer.controller.ClientController}.
+ * <br>
+ * Lookups by client id and by id read through two bounded caches, so client authentication and token requests
+ * do not query the database; unknown clients are cached as well. Changes evict the entries of the client on this
+ * node right away and on the other nodes through the {@link InvalidationBus}. Should an event be lost, an entry
+ * expires <code>cache.clients.ttl</code> after it was loaded, so a deleted client or an old secret is never served
+ * for longer than that. Metrics are published with the tags <code>cache=clients</code> and <code>cache=clients.by-id</code>.
+ * <br>
+ * The clients configured under <code>spring.security.oauth2.authorizationserver.client</code> are imported at
+ * startup, unless a client with the same client id exists already.
+ */
+@Component
+@Log
+public class JdbcClientRepository implements RegisteredClientRepository {
+	public static final String CACHE_NAME = "clients";
+	public static final String BY_ID_CACHE_NAME = "clients.by-id";
+	private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+	
+	@Autowired private StoredClientRepository clientRepo;
+	@Autowired private OAuth2AuthorizationServerProperties serverProperties;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private PlatformTransactionManager transactionManager;
+	@Autowired private ClientSecretCache secretCache;
+	@Autowired private InvalidationBus invalidationBus;
+	
+	@Value("${cache.clients.max-size:10000}")
+	private long maxSize;
+	@Value("${cache.clients.ttl:PT30S}")
+	private Duration ttl;
+	
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private TransactionTemplate loadTransaction;
+	private LoadingCache<String, Optional<RegisteredClient>> byClientId;
+	private LoadingCache<String, Optional<RegisteredClient>> byId;
+	
+	@PostConstruct
+	private void init() {
+		objectMapper.registerModules(SecurityJackson2Modules.getModules(getClass().getClassLoader()));
+		objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+		// read-write, so the loads go to the primary and a client created just now is not cached as missing
+		loadTransaction = new TransactionTemplate(transactionManager);
+		
+		byClientId = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build(clientId -> loadTransaction.execute(status -> clientRepo.findByClientId(clientId).map(this::toRegisteredClient)));
+		byId = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build(id -> loadTransaction.execute(status -> clientRepo.findById(id).map(this::toRegisteredClient)));
+		CaffeineCacheMetrics.monitor(meterRegistry, byClientId, CACHE_NAME);
+		CaffeineCacheMetrics.monitor(meterRegistry, byId, BY_ID_CACHE_NAME);
+		invalidationBus.register(CACHE_NAME, byClientId::invalidate, byClientId::invalidateAll);
+		invalidationBus.register(BY_ID_CACHE_NAME, byId::invalidate, byId::invalidateAll);
+		
+		importConfiguredClients();
+	}
+	
+	/**
+	 * Creates the client, or updates the client with the same id. The row is flushed right away, so a client id
+	 * taken concurrently fails here, on the {@link StoredClient#CLIENT_ID_UNIQUE_KEY} key.
+	 */
+	@Override
+	@Transactional
+	public void save(final RegisteredClient registeredClient) {
+		final StoredClient stored = clientRepo.findById(registeredClient.getId()).orElseGet(StoredClient::new);
+		if (!stored.isNew() && !stored.getClientId().equals(registeredClient.getClientId()))
+			evict(stored.getId(), stored.getClientId());
+		if (!stored.isNew() && !Objects.equals(stored.getClientSecret(), registeredClient.getClientSecret()))
+			evictSecret(stored.getClientSecret());
+		
+		stored.setId(registeredClient.getId());
+		stored.setClientId(registeredClient.getClientId());
+		stored.setClientIdIssuedAt(registeredClient.getClientIdIssuedAt());
+		stored.setClientSecret(registeredClient.getClientSecret());
+		stored.setClientSecretExpiresAt(registeredClient.getClientSecretExpiresAt());
+		stored.setClientName(registeredClient.getClientName());
+		stored.setClientAuthenticationMethods(join(registeredClient.getClientAuthenticationMethods().stream()
+				.map(ClientAuthenticationMethod::getValue).toList()));
+		stored.setAuthorizationGrantTypes(join(registeredClient.getAuthorizationGrantTypes().stream()
+				.map(AuthorizationGrantType::getValue).toList()));
+		stored.setRedirectUris(join(registeredClient.getRedirectUris()));
+		stored.setPostLogoutRedirectUris(join(registeredClient.getPostLogoutRedirectUris()));
+		stored.setScopes(join(registeredClient.getScopes()));
+		stored.setClientSettings(write(registeredClient.getClientSettings().getSettings()));
+		stored.setTokenSettings(write(registeredClient.getTokenSettings().getSettings()));
+		clientRepo.saveAndFlush(stored);
+		evict(registeredClient.getId(), registeredClient.getClientId());
+	}
+	
+	@Override
+	public RegisteredClient findById(final String id) {
+		return byId.get(id).orElse(null);
+	}
+	
+	@Override
+	public RegisteredClient findByClientId(final String clientId) {
+		return byClientId.get(clientId).orElse(null);
+	}
+	
+	/**
+	 * Reads the primary database, not the cache, so changes are made starting from the latest version of the client
+	 */
+	@Transactional
+	public Optional<RegisteredClient> load(final String clientId) {
+		return clientRepo.findByClientId(clientId).map(this::toRegisteredClient);
+	}
+	
+	/**
+	 * Reads the database, not the cache
+	 */
+	@Transactional(readOnly = true)
+	public List<RegisteredClient> findAll() {
+		return clientRepo.findAll().stream()
+				.map(this::toRegisteredClient)
+				.toList();
+	}
+	
+	/**
+	 * @return false if there is no client with this client id
+	 */
+	@Transactional
+	public boolean deleteByClientId(final String clientId) {
+		final Optional<StoredClient> stored = clientRepo.findByClientId(clientId);
+		stored.ifPresent(client ->
+		{
+			clientRepo.delete(client);
+			evict(client.getId(), client.getClientId());
+			evictSecret(client.getClientSecret());
+		});
+		return stored.isPresent();
+	}
+	
+	private void evict(final String id, final String clientId) {
+		TransactionUtils.runNowAndAfterCommit(() ->
+		{
+			byId.invalidate(id);
+			byClientId.invalidate(clientId);
+		});
+		invalidationBus.publish(BY_ID_CACHE_NAME, id);
+		invalidationBus.publish(CACHE_NAME, clientId);
+	}
+	
+	private void evictSecret(final String encodedSecret) {
+		TransactionUtils.runNowAndAfterCommit(() -> secretCache.invalidate(encodedSecret));
+	}
+	
+	private void importConfiguredClients() {
+		serverProperties.getClient().forEach((registrationId, client) ->
+		{
+			try {
+				final boolean imported = loadTransaction.execute(status ->
+				{
+					if (clientRepo.existsByClientId(client.getRegistration().getClientId()))
+						return false;
+					save(toRegisteredClient(registrationId, client));
+					return true;
+				});
+				if (imported)
+					log.info("Imported the configured client " + client.getRegistration().getClientId());
+			} catch (final DataIntegrityViolationException e) {
+				// imported by another node starting at the same time
+			}
+		});
+	}
+	
+	private RegisteredClient toRegisteredClient(final StoredClient stored) {
+		return RegisteredClient.withId(stored.getId())
+				.clientId(stored.getClientId())
+				.clientIdIssuedAt(stored.getClientIdIssuedAt())
+				.clientSecret(stored.getClientSecret())
+				.clientSecretExpiresAt(stored.getClientSecretExpiresAt())
+				.clientName(stored.getClientName())
+				.clientAuthenticationMethods(methods -> split(stored.getClientAuthenticationMethods())
+						.forEach(method -> methods.add(new ClientAuthenticationMethod(method))))
+				.authorizationGrantTypes(grantTypes -> split(stored.getAuthorizationGrantTypes())
+						.forEach(grantType -> grantTypes.add(new AuthorizationGrantType(grantType))))
+				.redirectUris(uris -> uris.addAll(split(stored.getRedirectUris())))
+				.postLogoutRedirectUris(uris -> uris.addAll(split(stored.getPostLogoutRedirectUris())))
+				.scopes(scopes -> scopes.addAll(split(stored.getScopes())))
+				.clientSettings(ClientSettings.withSettings(read(stored.getClientSettings())).build())
+				.tokenSettings(TokenSettings.withSettings(read(stored.getTokenSettings())).build())
+				.build();
+	}
+	
+	/**
+	 * Maps a client configured in the properties the same way Spring Boot does for its in-memory repository
+	 */
+	private static RegisteredClient toRegisteredClient(final String registrationId, final OAuth2AuthorizationServerProperties.Client client) {
+		final OAuth2AuthorizationServerProperties.Registration registration = client.getRegistration();
+		final ClientSettings.Builder clientSettings = ClientSettings.builder()
+				.requireProofKey(client.isRequireProofKey())
+				.requireAuthorizationConsent(client.isRequireAuthorizationConsent());
+		if (client.getJwkSetUri() != null)
+			clientSettings.jwkSetUrl(client.getJwkSetUri());
+		if (client.getTokenEndpointAuthenticationSigningAlgorithm() != null)
+			clientSettings.tokenEndpointAuthenticationSigningAlgorithm(jwsAlgorithm(client.getTokenEndpointAuthenticationSigningAlgorithm()));
+		
+		final OAuth2AuthorizationServerProperties.Token token = client.getToken();
+		final TokenSettings.Builder tokenSettings = TokenSettings.builder()
+				.authorizationCodeTimeToLive(token.getAuthorizationCodeTimeToLive())
+				.accessTokenTimeToLive(token.getAccessTokenTimeToLive())
+				.accessTokenFormat(new OAuth2TokenFormat(token.getAccessTokenFormat()))
+				.deviceCodeTimeToLive(token.getDeviceCodeTimeToLive())
+				.reuseRefreshTokens(token.isReuseRefreshTokens())
+				.refreshTokenTimeToLive(token.getRefreshTokenTimeToLive());
+		if (token.getIdTokenSignatureAlgorithm() != null)
+			tokenSettings.idTokenSignatureAlgorithm(SignatureAlgorithm.from(token.getIdTokenSignatureAlgorithm().toUpperCase()));
+		
+		return RegisteredClient.withId(registrationId)
+				.clientId(registration.getClientId())
+				.clientSecret(registration.getClientSecret())
+				.clientName(registration.getClientName() == null ? registration.getClientId() : registration.getClientName())
+				.clientAuthenticationMethods(methods -> registration.getClientAuthenticationMethods()
+						.forEach(method -> methods.add(new ClientAuthenticationMethod(method))))
+				.authorizationGrantTypes(grantTypes -> registration.getAuthorizationGrantTypes()
+						.forEach(grantType -> grantTypes.add(new AuthorizationGrantType(grantType))))
+				.redirectUris(uris -> uris.addAll(registration.getRedirectUris()))
+				.postLogoutRedirectUris(uris -> uris.addAll(registration.getPostLogoutRedirectUris()))
+				.scopes(scopes -> scopes.addAll(registration.getScopes()))
+				.clientSettings(clientSettings.build())
+				.tokenSettings(tokenSettings.build())
+				.build();
+	}
+	
+	private static JwsAlgorithm jwsAlgorithm(final String name) {
+		final String algorithm = name.toUpperCase();
+		final JwsAlgorithm signatureAlgorithm = SignatureAlgorithm.from(algorithm);
+		return signatureAlgorithm != null ? signatureAlgorithm : MacAlgorithm.from(algorithm);
+	}
+	
+	private static String join(final Set<String> values) {
+		return StringUtils.collectionToCommaDelimitedString(values);
+	}
+	
+	private static String join(final List<String> values) {
+		return StringUtils.collectionToCommaDelimitedString(values);
+	}
+	
+	private static Set<String> split(final String values) {
+		return StringUtils.commaDelimitedListToSet(values);
+	}
+	
+	private String write(final Map<String, Object> map) {
+		try {
+			return objectMapper.writeValueAsString(map);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+	
+	private Map<String, Object> read(final String json) {
+		try {
+			return objectMapper.readValue(json, MAP_TYPE);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
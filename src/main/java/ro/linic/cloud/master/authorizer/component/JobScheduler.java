@@ -1,19 +1,184 @@
 package ro.linic.cloud.master.authorizer.component;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.java.Log;
 import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenUseRepository;
+import ro.linic.cloud.master.authorizer.repository.JobLeaseRepository;
+import ro.linic.cloud.master.authorizer.repository.StoredAuthorizationRepository;
 
+/**
+ * Scheduled maintenance jobs. Each job runs on a single node of the cluster at a time, guarded by a
+ * {@link ro.linic.cloud.master.authorizer.entity.JobLease} row; nodes that cannot take the lease skip the run.
+ */
 @Component
+@Log
 public class JobScheduler {
+	public static final String EXPIRED_INVITE_TOKENS_JOB = "remove-expired-invite-tokens";
+	public static final String EXPIRED_AUTHORIZATIONS_JOB = "remove-expired-authorizations";
+	public static final String TENANT_DELETION_JOB = "delete-tenants";
+	public static final String SIGNING_KEY_ROTATION_JOB = "rotate-signing-keys";
+	
 	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private InviteTokenUseRepository tokenUseRepo;
+	@Autowired private JobLeaseRepository leaseRepo;
+	@Autowired private StoredAuthorizationRepository authorizationRepo;
+	@Autowired private TenantDeleter tenantDeleter;
+	@Autowired private JwkKeyRing keyRing;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${jobs.lease-ttl:PT10M}")
+	private Duration leaseTtl;
+	@Value("${jobs.expired-tokens.chunk-size:1000}")
+	private int chunkSize;
+	
+	private final String owner = hostName() + "-" + UUID.randomUUID();
 	
+	/**
+	 * Deletes the expired invite tokens, and the use records of expired signed invite tokens, in chunks of
+	 * <code>jobs.expired-tokens.chunk-size</code>, each chunk in its own transaction, so locks are short and
+	 * memory use is constant. The lease is renewed after every chunk. Publishes the
+	 * <code>jobs.expired.invite.tokens</code> timer and the <code>jobs.expired.invite.tokens.deleted</code> counter.
+	 */
 	@Scheduled(cron = "${cron.check-expired-tokens:0 0 * * * *}") // every hour
-    public void removeExpiredInviteTokens() {
-		tokenRepo.findAllByExpiryDateBefore(Instant.now()).forEach(tokenRepo::delete);
-    }
+	public void removeExpiredInviteTokens() {
+		if (!acquireLease(EXPIRED_INVITE_TOKENS_JOB))
+			return;
+		
+		final long start = System.nanoTime();
+		long deleted = 0;
+		try {
+			final Instant now = Instant.now();
+			deleted = deleteInChunks(EXPIRED_INVITE_TOKENS_JOB, () -> tokenRepo.deleteExpiredBefore(now, chunkSize))
+					+ deleteInChunks(EXPIRED_INVITE_TOKENS_JOB, () -> tokenUseRepo.deleteExpiredBefore(now, chunkSize));
+		} finally {
+			leaseRepo.release(EXPIRED_INVITE_TOKENS_JOB, owner);
+			final Duration took = Duration.ofNanos(System.nanoTime() - start);
+			meterRegistry.timer("jobs.expired.invite.tokens").record(took);
+			meterRegistry.counter("jobs.expired.invite.tokens.deleted").increment(deleted);
+			log.info("Removed " + deleted + " expired invite tokens in " + took.toMillis() + " ms");
+		}
+	}
+	
+	/**
+	 * Deletes the authorizations, of <code>authorization.store=jdbc</code>, whose tokens all expired, in chunks of
+	 * <code>jobs.expired-tokens.chunk-size</code>, each chunk in its own transaction, renewing the lease after every
+	 * chunk. Publishes the <code>jobs.expired.authorizations</code> timer and the
+	 * <code>jobs.expired.authorizations.deleted</code> counter.
+	 */
+	@Scheduled(cron = "${cron.check-expired-authorizations:0 30 * * * *}") // every hour, at half past
+	public void removeExpiredAuthorizations() {
+		if (!acquireLease(EXPIRED_AUTHORIZATIONS_JOB))
+			return;
+		
+		final long start = System.nanoTime();
+		long deleted = 0;
+		try {
+			final Instant now = Instant.now();
+			deleted = deleteInChunks(EXPIRED_AUTHORIZATIONS_JOB, () -> authorizationRepo.deleteExpiredBefore(now, chunkSize));
+		} finally {
+			leaseRepo.release(EXPIRED_AUTHORIZATIONS_JOB, owner);
+			final Duration took = Duration.ofNanos(System.nanoTime() - start);
+			meterRegistry.timer("jobs.expired.authorizations").record(took);
+			meterRegistry.counter("jobs.expired.authorizations.deleted").increment(deleted);
+			log.info("Removed " + deleted + " expired authorizations in " + took.toMillis() + " ms");
+		}
+	}
+	
+	/**
+	 * Runs the requested tenant deletions, oldest first, chunk by chunk, renewing the lease after every chunk.
+	 * A deletion interrupted by a crash or a lost lease is resumed by a later run, on any node. A tenant whose
+	 * deletion fails is logged and retried by the next run, after the other tenants.
+	 * Publishes the <code>jobs.tenant.deletion</code> timer and the <code>jobs.tenant.deletion.failed</code> counter.
+	 */
+	@Scheduled(fixedDelayString = "${jobs.tenant-deletion.interval:PT30S}")
+	public void deleteTenants() {
+		final List<Integer> pending = tenantDeleter.pending();
+		if (pending.isEmpty() || !acquireLease(TENANT_DELETION_JOB))
+			return;
+		
+		try {
+			for (final int tenantId : pending) {
+				final long start = System.nanoTime();
+				boolean more;
+				try {
+					do {
+						more = tenantDeleter.deleteChunk(tenantId);
+					} while (more && acquireLease(TENANT_DELETION_JOB));
+				} catch (final RuntimeException e) {
+					meterRegistry.counter("jobs.tenant.deletion.failed").increment();
+					log.log(Level.SEVERE, "Could not delete tenant " + tenantId + ", continuing with the next tenant", e);
+					if (acquireLease(TENANT_DELETION_JOB))
+						continue;
+					return;
+				}
+				
+				if (more)
+					return;
+				final Duration took = Duration.ofNanos(System.nanoTime() - start);
+				meterRegistry.timer("jobs.tenant.deletion").record(took);
+				log.info("Deleted tenant " + tenantId + " in " + took.toMillis() + " ms");
+			}
+		} finally {
+			leaseRepo.release(TENANT_DELETION_JOB, owner);
+		}
+	}
+	
+	/**
+	 * Rotates the token signing keys on the node holding the lease; the other nodes reload the key ring, picking up
+	 * the keys it created. The keys are published a rotation overlap before they sign, so <code>jwk.refresh-interval</code>
+	 * only needs to be well below the overlap.
+	 */
+	@Scheduled(fixedDelayString = "${jwk.refresh-interval:PT10M}", initialDelayString = "${jwk.refresh-interval:PT10M}")
+	public void rotateSigningKeys() {
+		if (!acquireLease(SIGNING_KEY_ROTATION_JOB)) {
+			keyRing.reload();
+			return;
+		}
+		
+		try {
+			keyRing.rotate();
+		} finally {
+			leaseRepo.release(SIGNING_KEY_ROTATION_JOB, owner);
+		}
+	}
+	
+	/**
+	 * Runs the delete until it deletes less than a full chunk or the lease is lost
+	 */
+	private long deleteInChunks(final String job, final IntSupplier deleteChunk) {
+		long deleted = 0;
+		int chunk;
+		do {
+			chunk = deleteChunk.getAsInt();
+			deleted += chunk;
+		} while (chunk == chunkSize && acquireLease(job));
+		return deleted;
+	}
+	
+	private boolean acquireLease(final String job) {
+		return leaseRepo.acquire(job, owner, leaseTtl.toSeconds()) == 1;
+	}
+	
+	private static String hostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (final UnknownHostException e) {
+			return "unknown";
+		}
+	}
 }
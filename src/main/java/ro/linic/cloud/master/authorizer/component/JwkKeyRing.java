@@ -0,0 +1,247 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.java.Log;
+import ro.linic.cloud.master.authorizer.entity.SigningKey;
+import ro.linic.cloud.master.authorizer.repository.JobLeaseRepository;
+import ro.linic.cloud.master.authorizer.repository.SigningKeyRepository;
+
+/**
+ * The token signing keys, stored as {@link SigningKey} rows, so all nodes sign with the same key and the issued
+ * tokens survive restarts. New keys use <code>jwk.algorithm</code>: RS256(default) or ES256, which is cheaper to
+ * sign and verify. The keys rotate every <code>jwk.rotation.period</code>: the next key is published
+ * <code>jwk.rotation.overlap</code> before it starts signing, and a retired key stays published for another overlap,
+ * so the overlap should be longer than the token lifetime plus the time resource servers cache the JWK set.
+ * <p>
+ * The ring is kept in memory, together with the serialized public JWK set, and is reloaded by
+ * {@link JobScheduler#rotateSigningKeys()}. The first key is created at startup under the same lease as the rotation,
+ * so nodes starting together on an empty table agree on one key. The signing key is picked by time, so all nodes switch to the next key
+ * at the same moment. The private keys are encrypted with AES-GCM using <code>jwk.encryption-key</code>(base64),
+ * when set.
+ */
+@Component
+@Log
+public class JwkKeyRing implements JWKSource<SecurityContext> {
+	public enum Algorithm { RS256, ES256 }
+	
+	/**
+	 * The public JWK set as served by the JWK set endpoint
+	 */
+	public record PublishedJwkSet(byte[] json, String etag) {}
+	
+	private record RingKey(JWK jwk, Instant signingFrom) {}
+	private record Ring(List<RingKey> keys, JWKSet jwkSet, PublishedJwkSet published) {}
+	
+	private static final String CIPHER = "AES/GCM/NoPadding";
+	private static final int IV_LENGTH = 12;
+	private static final int TAG_LENGTH = 128;
+	private static final Duration FIRST_KEY_POLL_INTERVAL = Duration.ofSeconds(1);
+	
+	@Autowired private SigningKeyRepository keyRepo;
+	@Autowired private JobLeaseRepository leaseRepo;
+	
+	@Value("${jwk.algorithm:RS256}")
+	private Algorithm algorithm;
+	@Value("${jwk.rotation.period:P30D}")
+	private Duration rotationPeriod;
+	@Value("${jwk.rotation.overlap:P1D}")
+	private Duration overlap;
+	@Value("${jwk.encryption-key:}")
+	private String encryptionKey;
+	@Value("${jobs.lease-ttl:PT10M}")
+	private Duration leaseTtl;
+	
+	private final SecureRandom random = new SecureRandom();
+	private SecretKeySpec key;
+	private volatile Ring ring;
+	
+	@PostConstruct
+	private void init() {
+		if (encryptionKey.isBlank())
+			log.warning("jwk.encryption-key is not set, storing the token signing keys unencrypted");
+		else
+			key = new SecretKeySpec(Base64.getDecoder().decode(encryptionKey), "AES");
+		
+		reload();
+		if (ring.keys().isEmpty())
+			createFirstKey();
+	}
+	
+	@Override
+	public List<JWK> get(final JWKSelector jwkSelector, final SecurityContext context) {
+		return jwkSelector.select(ring.jwkSet());
+	}
+	
+	/**
+	 * @return the key signing the tokens now: the last one whose signing period started, so a key that was due
+	 * for rotation keeps signing until the next one exists
+	 */
+	public JWK signingKey() {
+		final Instant now = Instant.now();
+		return ring.keys().stream()
+				.filter(k -> !k.signingFrom().isAfter(now))
+				.reduce((first, second) -> second)
+				.orElseThrow(() -> new IllegalStateException("No token signing key available"))
+				.jwk();
+	}
+	
+	public PublishedJwkSet published() {
+		return ring.published();
+	}
+	
+	/**
+	 * Creates the next key once the last one stops signing within the overlap, deletes the keys that are no longer
+	 * published and reloads the ring. Must run on a single node at a time.
+	 */
+	public void rotate() {
+		final Instant now = Instant.now();
+		final Instant lastSigningUntil = keyRepo.findAllByPublishedUntilAfterOrderBySigningFrom(now).stream()
+				.map(SigningKey::getSigningUntil)
+				.max(Comparator.naturalOrder())
+				.orElse(now);
+		
+		if (lastSigningUntil.isBefore(now.plus(overlap))) {
+			final SigningKey next = generate(lastSigningUntil.isAfter(now) ? lastSigningUntil : now);
+			keyRepo.save(next);
+			log.info("Created token signing key " + next.getKid() + ", signing from " + next.getSigningFrom());
+		}
+		keyRepo.deleteUnpublished(now);
+		reload();
+	}
+	
+	/**
+	 * Only the node holding the rotation lease creates the key; the others reload until they see it. A holder
+	 * that dies before creating the key lets the lease expire, so another node takes over.
+	 */
+	private void createFirstKey() {
+		final String owner = "startup-" + UUID.randomUUID();
+		while (ring.keys().isEmpty()) {
+			if (leaseRepo.acquire(JobScheduler.SIGNING_KEY_ROTATION_JOB, owner, leaseTtl.toSeconds()) == 1) {
+				try {
+					// rotate() reads the keys again, so a key created before the lease was taken is reused
+					rotate();
+				} finally {
+					leaseRepo.release(JobScheduler.SIGNING_KEY_ROTATION_JOB, owner);
+				}
+			} else {
+				try {
+					Thread.sleep(FIRST_KEY_POLL_INTERVAL.toMillis());
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while waiting for the first token signing key", e);
+				}
+				reload();
+			}
+		}
+	}
+	
+	/**
+	 * Loads the published keys, picking up the keys created by other nodes
+	 */
+	public void reload() {
+		final List<RingKey> keys = keyRepo.findAllByPublishedUntilAfterOrderBySigningFrom(Instant.now()).stream()
+				.map(k -> new RingKey(parse(open(k.getJwk())), k.getSigningFrom()))
+				.toList();
+		final JWKSet jwkSet = new JWKSet(keys.stream().map(RingKey::jwk).toList());
+		final byte[] json = jwkSet.toString(true).getBytes(StandardCharsets.UTF_8);
+		ring = new Ring(keys, jwkSet, new PublishedJwkSet(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\""));
+	}
+	
+	private SigningKey generate(final Instant signingFrom) {
+		final String kid = UUID.randomUUID().toString();
+		final JWK jwk;
+		try {
+			jwk = switch (algorithm) {
+			case RS256 -> new RSAKeyGenerator(RSAKeyGenerator.MIN_KEY_SIZE_BITS)
+					.keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.RS256).generate();
+			case ES256 -> new ECKeyGenerator(Curve.P_256)
+					.keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.ES256).generate();
+			};
+		} catch (final JOSEException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		final SigningKey signingKey = new SigningKey();
+		signingKey.setKid(kid);
+		signingKey.setAlgorithm(algorithm.name());
+		signingKey.setJwk(seal(jwk.toJSONString()));
+		signingKey.setSigningFrom(signingFrom);
+		signingKey.setSigningUntil(signingFrom.plus(rotationPeriod));
+		signingKey.setPublishedUntil(signingFrom.plus(rotationPeriod).plus(overlap));
+		return signingKey;
+	}
+	
+	private static JWK parse(final String json) {
+		try {
+			return JWK.parse(json);
+		} catch (final ParseException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private String seal(final String json) {
+		if (key == null)
+			return json;
+		
+		try {
+			final byte[] iv = new byte[IV_LENGTH];
+			random.nextBytes(iv);
+			final Cipher cipher = Cipher.getInstance(CIPHER);
+			cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+			final byte[] sealed = cipher.doFinal(json.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(ByteBuffer.allocate(IV_LENGTH + sealed.length).put(iv).put(sealed).array());
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private String open(final String stored) {
+		// keys stored before the encryption key was set are plain JSON
+		if (stored.startsWith("{"))
+			return stored;
+		if (key == null)
+			throw new IllegalStateException("jwk.encryption-key is needed to read the encrypted token signing keys");
+		
+		try {
+			final byte[] bytes = Base64.getDecoder().decode(stored);
+			final Cipher cipher = Cipher.getInstance(CIPHER);
+			cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, bytes, 0, IV_LENGTH));
+			return new String(cipher.doFinal(bytes, IV_LENGTH, bytes.length - IV_LENGTH), StandardCharsets.UTF_8);
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps the authorizations of this node in memory, for <code>authorization.store=memory</code>.
+ * <br>
+ * The authorizations are held in a Caffeine cache, whose hash table locks per bin, so concurrent token requests do
+ * not contend on a single lock. The cache is bounded to <code>authorization.memory.max-size</code> entries, evicted
+ * on the saving thread so the bound holds after every save, and each authorization expires with its last token.
+ * Tokens and states are indexed to their authorization id; evicted authorizations are dropped from the index.
+ * <br>
+ * Metrics are published with the tag <code>cache=authorizations</code>, and the lookups are timed by
+ * <code>authorization.store.lookup</code> with the tag <code>store=memory</code>.
+ */
+public class MemoryAuthorizationStore implements OAuth2AuthorizationService {
+	public static final String CACHE_NAME = "authorizations";
+	
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${authorization.memory.max-size:100000}")
+	private long maxSize;
+	@Value("${authorization.pending-ttl:PT30M}")
+	private Duration pendingTtl;
+	
+	private Cache<String, OAuth2Authorization> authorizations;
+	private final Map<String, String> idsByLookupValue = new ConcurrentHashMap<>();
+	private Timer lookups;
+	
+	@PostConstruct
+	private void init() {
+		authorizations = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new Expiry<String, OAuth2Authorization>() {
+					@Override
+					public long expireAfterCreate(final String id, final OAuth2Authorization authorization, final long currentTime) {
+						return nanosUntilExpiry(authorization);
+					}
+					
+					@Override
+					public long expireAfterUpdate(final String id, final OAuth2Authorization authorization, final long currentTime,
+							final long currentDuration) {
+						return nanosUntilExpiry(authorization);
+					}
+					
+					@Override
+					public long expireAfterRead(final String id, final OAuth2Authorization authorization, final long currentTime,
+							final long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.executor(Runnable::run)
+				.evictionListener((final String id, final OAuth2Authorization authorization, final RemovalCause cause) ->
+						unindex(id, authorization))
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, authorizations, CACHE_NAME);
+		lookups = meterRegistry.timer("authorization.store.lookup", "store", "memory");
+	}
+	
+	@Override
+	public void save(final OAuth2Authorization authorization) {
+		authorizations.asMap().compute(authorization.getId(), (id, previous) ->
+		{
+			if (previous != null)
+				unindex(id, previous);
+			AuthorizationTokens.lookupValues(authorization).forEach(value -> idsByLookupValue.put(value, id));
+			return authorization;
+		});
+	}
+	
+	@Override
+	public void remove(final OAuth2Authorization authorization) {
+		authorizations.asMap().computeIfPresent(authorization.getId(), (id, previous) ->
+		{
+			unindex(id, previous);
+			return null;
+		});
+	}
+	
+	@Override
+	public OAuth2Authorization findById(final String id) {
+		return lookups.record(() -> authorizations.getIfPresent(id));
+	}
+	
+	@Override
+	public OAuth2Authorization findByToken(final String token, final OAuth2TokenType tokenType) {
+		return lookups.record(() ->
+		{
+			final String id = idsByLookupValue.get(token);
+			final OAuth2Authorization authorization = id == null ? null : authorizations.getIfPresent(id);
+			return authorization != null && AuthorizationTokens.hasToken(authorization, token, tokenType) ? authorization : null;
+		});
+	}
+	
+	private void unindex(final String id, final OAuth2Authorization authorization) {
+		AuthorizationTokens.lookupValues(authorization).forEach(value -> idsByLookupValue.remove(value, id));
+	}
+	
+	private long nanosUntilExpiry(final OAuth2Authorization authorization) {
+		final Instant expiresAt = AuthorizationTokens.expiresAt(authorization, pendingTtl);
+		if (expiresAt.equals(Instant.MAX))
+			return Long.MAX_VALUE;
+		return Math.max(0, Duration.between(Instant.now(), expiresAt).toNanos());
+	}
+}
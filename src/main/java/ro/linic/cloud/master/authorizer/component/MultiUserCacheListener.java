@@ -0,0 +1,32 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ro.linic.cloud.master.authorizer.entity.MultiUser;
+
+/**
+ * Keeps {@link PrincipalResolver} in sync with every write of a {@link MultiUser}, whichever code path
+ * creates, changes or deletes the user(logins, controllers, scripts). Changes of the principals of an existing
+ * user alone do not update the user, so they are evicted explicitly, see {@link MultiUser#getPrincipals()}.
+ * <br>
+ * Instantiated by Hibernate through the Spring bean container; the resolver is injected lazily
+ * because it depends on the repositories, which are created after the entity manager factory.
+ */
+public class MultiUserCacheListener {
+	@Autowired @Lazy private PrincipalResolver principalResolver;
+	
+	@PostPersist
+	@PostUpdate
+	public void userChanged(final MultiUser user) {
+		principalResolver.evictUserChanged(user);
+	}
+	
+	@PostRemove
+	public void userDeleted(final MultiUser user) {
+		principalResolver.evictUserDeleted(user.getId());
+	}
+}
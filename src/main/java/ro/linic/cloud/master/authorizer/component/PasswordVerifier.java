@@ -0,0 +1,180 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.java.Log;
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.common.I18n;
+
+/**
+ * Runs the password hashing of the form logins on a dedicated pool of <code>password.verification.threads</code>
+ * threads, which bounds the CPU a login storm can take from the other endpoints.
+ * <br>
+ * At most <code>password.verification.queue-capacity</code> verifications wait for a thread; when the queue is full
+ * the login is rejected right away. A login whose verification does not complete within
+ * <code>password.verification.max-wait</code>, queueing included, is rejected as well and its verification is
+ * cancelled. Rejected logins fail with {@link AuthenticationServiceException}.
+ * <br>
+ * The request thread of a login still waits for its verification, so a login storm holds at most
+ * threads + queue-capacity request threads, each for at most the max wait. The queue must therefore stay well below
+ * <code>server.tomcat.threads.max</code>; a warning is logged at startup otherwise.
+ * <br>
+ * The rehash after a successful login is skipped while the pool is saturated(as many logins waiting as there are
+ * threads, or a non-empty queue), and otherwise runs without the deadline, so a correct password is never rejected
+ * because of it.
+ * <br>
+ * Metrics: <code>password.verification</code> timer of the hashing itself, <code>password.verification.queue.size</code>,
+ * <code>password.verification.active</code> and <code>password.verification.rejected</code> tagged with
+ * <code>reason=full|deadline</code>.
+ */
+@Component
+@Log
+public class PasswordVerifier {
+	@Autowired private I18n i18n;
+	@Autowired private PasswordEncoder passwordEncoder;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Value("${password.verification.threads:0}")
+	private int threads;
+	@Value("${password.verification.queue-capacity:20}")
+	private int queueCapacity;
+	@Value("${password.verification.max-wait:PT2S}")
+	private Duration maxWait;
+	@Value("${server.tomcat.threads.max:200}")
+	private int requestThreads;
+	
+	private ThreadPoolExecutor executor;
+	/**
+	 * Verifications whose logins are waiting for them; counted by the callers, so a login no longer counts once
+	 * its own verification completed, even if the pool thread is still finishing
+	 */
+	private final AtomicInteger waitingLogins = new AtomicInteger();
+	private Timer verifications;
+	private Counter rejectedFull;
+	private Counter rejectedDeadline;
+	
+	@PostConstruct
+	private void start() {
+		final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		if (poolSize + queueCapacity > requestThreads / 2)
+			log.warning("Up to " + (poolSize + queueCapacity) + " of the " + requestThreads + " request threads can wait "
+					+ "for password verifications; lower password.verification.queue-capacity");
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-verifier-");
+		threadFactory.setDaemon(true);
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		
+		verifications = meterRegistry.timer("password.verification");
+		rejectedFull = Counter.builder("password.verification.rejected").tag("reason", "full").register(meterRegistry);
+		rejectedDeadline = Counter.builder("password.verification.rejected").tag("reason", "deadline").register(meterRegistry);
+		Gauge.builder("password.verification.queue.size", executor.getQueue(), BlockingQueue::size).register(meterRegistry);
+		Gauge.builder("password.verification.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+	}
+	
+	@PreDestroy
+	private void stop() {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * @return the password encoder hashing and verifying on the pool
+	 */
+	public PasswordEncoder encoder() {
+		return new PasswordEncoder() {
+			/**
+			 * Only used for the rehash, after the password matched: there is no deadline, and a hashing rejected
+			 * by a pool that filled up since {@link #upgradeEncoding(String)} runs on the calling thread
+			 */
+			@Override
+			public String encode(final CharSequence rawPassword) {
+				try {
+					return executor.submit(() -> verifications.recordCallable(() -> passwordEncoder.encode(rawPassword))).get();
+				} catch (final RejectedExecutionException e) {
+					return passwordEncoder.encode(rawPassword);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new AuthenticationServiceException(i18n.msg(Messages.LoginBusy), e);
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof final RuntimeException cause)
+						throw cause;
+					throw new AuthenticationServiceException(e.getCause().getMessage(), e.getCause());
+				}
+			}
+			
+			@Override
+			public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+				return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+			}
+			
+			/**
+			 * @return false while the pool is saturated, postponing the rehash to a later login
+			 */
+			@Override
+			public boolean upgradeEncoding(final String encodedPassword) {
+				return passwordEncoder.upgradeEncoding(encodedPassword) && !saturated();
+			}
+		};
+	}
+	
+	private boolean saturated() {
+		return waitingLogins.get() >= executor.getMaximumPoolSize() || !executor.getQueue().isEmpty();
+	}
+	
+	private <T> T run(final Callable<T> hashing) {
+		waitingLogins.incrementAndGet();
+		try {
+			return await(hashing);
+		} finally {
+			waitingLogins.decrementAndGet();
+		}
+	}
+	
+	private <T> T await(final Callable<T> hashing) {
+		final Future<T> result;
+		try {
+			result = executor.submit(() -> verifications.recordCallable(hashing));
+		} catch (final RejectedExecutionException e) {
+			rejectedFull.increment();
+			throw new AuthenticationServiceException(i18n.msg(Messages.LoginBusy), e);
+		}
+		
+		try {
+			return result.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (final TimeoutException e) {
+			result.cancel(true);
+			rejectedDeadline.increment();
+			throw new AuthenticationServiceException(i18n.msg(Messages.LoginBusy), e);
+		} catch (final InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException(i18n.msg(Messages.LoginBusy), e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof final RuntimeException cause)
+				throw cause;
+			throw new AuthenticationServiceException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+}
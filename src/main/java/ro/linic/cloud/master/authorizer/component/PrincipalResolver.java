@@ -0,0 +1,208 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import ro.linic.cloud.master.authorizer.common.TransactionUtils;
+import ro.linic.cloud.master.authorizer.config.RoutingDataSource;
+import ro.linic.cloud.master.authorizer.entity.MultiUser;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.util.commons.NumberUtils;
+
+/**
+ * Resolves a principal name to the id of its {@link MultiUser}: first as a user id, then as an
+ * external principal name, with a single query.
+ * <br>
+ * Resolved principals are kept in a bounded cache. Principals that resolve to no user are kept
+ * in a second, short lived cache, so unknown or garbage principals that are presented repeatedly
+ * do not reach the database every time. Lookups within a read-write transaction are cached only
+ * after it commits, and only if no eviction ran since the lookup, like in {@link AuthorityResolver}.
+ * Lookups served by a replica are not cached.
+ * <br>
+ * Both caches are invalidated by {@link MultiUserCacheListener} whenever a user is created, updated or deleted,
+ * by {@link #evictUserChanged(MultiUser)} when only the principals of a user change, and on the other nodes through the {@link InvalidationBus}. The principals
+ * cached for each user are indexed by user id, so evicting a user does not scan the cache.
+ * Metrics are published with the tags <code>cache=principals</code> and <code>cache=principals.negative</code>.
+ */
+@Component
+public class PrincipalResolver {
+	public static final String CACHE_NAME = "principals";
+	public static final String NEGATIVE_CACHE_NAME = "principals.negative";
+	private static final String ADDED_EVENT = "principals.added";
+	
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private MultiUserRepository userRepo;
+	@Autowired private InvalidationBus invalidationBus;
+	@Autowired private RoutingDataSource routingDataSource;
+	
+	@Value("${cache.principals.max-size:100000}")
+	private long maxSize;
+	@Value("${cache.principals.ttl:PT1H}")
+	private Duration ttl;
+	@Value("${cache.principals.negative-max-size:10000}")
+	private long negativeMaxSize;
+	@Value("${cache.principals.negative-ttl:PT30S}")
+	private Duration negativeTtl;
+	
+	private Cache<String, Integer> userIds;
+	private Cache<String, Boolean> unknownPrincipals;
+	private final Map<Integer, Set<String>> principalsByUser = new ConcurrentHashMap<>();
+	private final AtomicLong evictions = new AtomicLong();
+	
+	@PostConstruct
+	private void init() {
+		userIds = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(ttl)
+				.evictionListener((final String principal, final Integer userId, final RemovalCause cause) -> unindex(principal, userId))
+				.recordStats()
+				.build();
+		unknownPrincipals = Caffeine.newBuilder()
+				.maximumSize(negativeMaxSize)
+				.expireAfterWrite(negativeTtl)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, userIds, CACHE_NAME);
+		CaffeineCacheMetrics.monitor(meterRegistry, unknownPrincipals, NEGATIVE_CACHE_NAME);
+		
+		invalidationBus.register(CACHE_NAME, userId ->
+		{
+			removeUnknown(Set.of(userId));
+			removeUser(Integer.parseInt(userId));
+		}, this::invalidateAll);
+		invalidationBus.register(ADDED_EVENT, principal -> removeUnknown(Set.of(principal)), this::invalidateAll);
+	}
+	
+	public Optional<Integer> userId(final String principal) {
+		if (principal == null)
+			return Optional.empty();
+		
+		final Integer cachedId = userIds.getIfPresent(principal);
+		if (cachedId != null)
+			return Optional.of(cachedId);
+		if (unknownPrincipals.getIfPresent(principal) != null)
+			return Optional.empty();
+		
+		final long generation = evictions.get();
+		final Optional<Integer> userId = userRepo.findUserIdByIdOrPrincipal(NumberUtils.parseToInt(principal), principal);
+		if (routingDataSource.readsFromReplica())
+			return userId;
+		
+		TransactionUtils.runAfterCommit(() ->
+		{
+			if (userId.isPresent())
+				put(principal, userId.get(), generation);
+			else
+				putUnknown(principal, generation);
+		});
+		return userId;
+	}
+	
+	public Optional<MultiUser> findUser(final String principal) {
+		return userId(principal).flatMap(userRepo::findById);
+	}
+	
+	/**
+	 * A user was created or changed: forget the principals that were unknown until now,
+	 * and the principals that may no longer belong to this user. Principals that were never loaded
+	 * cannot have changed, so updates of the other fields of a user evict nothing.
+	 */
+	public void evictUserChanged(final MultiUser user) {
+		if (!Hibernate.isInitialized(user.getPrincipals()))
+			return;
+		
+		final String userId = String.valueOf(user.getId());
+		final Set<String> principals = Set.copyOf(user.getPrincipals());
+		final Set<String> unknown = new HashSet<>(principals);
+		unknown.add(userId);
+		TransactionUtils.runNowAndAfterCommit(() ->
+		{
+			removeUnknown(unknown);
+			removeUser(user.getId());
+		});
+		invalidationBus.publish(CACHE_NAME, userId);
+		principals.forEach(principal -> invalidationBus.publish(ADDED_EVENT, principal));
+	}
+	
+	public void evictUserDeleted(final int userId) {
+		TransactionUtils.runNowAndAfterCommit(() -> removeUser(userId));
+		invalidationBus.publish(CACHE_NAME, String.valueOf(userId));
+	}
+	
+	/**
+	 * Caches the user id unless an eviction ran since it was looked up at <code>generation</code>.
+	 * The principal is indexed after the put, so a concurrent {@link #removeUser(int)} either finds it in the index
+	 * or has already incremented the generation, and then the entry is taken back.
+	 */
+	private void put(final String principal, final int userId, final long generation) {
+		if (evictions.get() != generation)
+			return;
+		
+		userIds.put(principal, userId);
+		index(principal, userId);
+		if (evictions.get() != generation)
+			userIds.asMap().remove(principal, userId);
+	}
+	
+	private void putUnknown(final String principal, final long generation) {
+		if (evictions.get() != generation)
+			return;
+		
+		unknownPrincipals.put(principal, Boolean.TRUE);
+		if (evictions.get() != generation)
+			unknownPrincipals.asMap().remove(principal, Boolean.TRUE);
+	}
+	
+	private void removeUser(final int userId) {
+		evictions.incrementAndGet();
+		final Set<String> principals = principalsByUser.remove(userId);
+		if (principals != null)
+			userIds.invalidateAll(principals);
+	}
+	
+	private void removeUnknown(final Set<String> principals) {
+		evictions.incrementAndGet();
+		unknownPrincipals.invalidateAll(principals);
+	}
+	
+	private void invalidateAll() {
+		evictions.incrementAndGet();
+		unknownPrincipals.invalidateAll();
+		userIds.invalidateAll();
+		principalsByUser.clear();
+	}
+	
+	private void index(final String principal, final int userId) {
+		principalsByUser.compute(userId, (id, principals) ->
+		{
+			final Set<String> indexed = principals == null ? new HashSet<>() : principals;
+			indexed.add(principal);
+			return indexed;
+		});
+	}
+	
+	private void unindex(final String principal, final int userId) {
+		principalsByUser.computeIfPresent(userId, (id, principals) ->
+		{
+			principals.remove(principal);
+			return principals.isEmpty() ? null : principals;
+		});
+	}
+}
@@ -0,0 +1,61 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Remembers which principals changed data in the last <code>replica.read-your-writes-window</code>, so their
+ * reads are served by the primary database instead of a replica that may not have caught up yet.
+ * A change is a read-write transaction that committed; it is recorded as soon as it commits, before
+ * the response is written, and failed or rolled back requests are not recorded.
+ * <br>
+ * The window is tracked per node; behind a load balancer without sticky sessions a read can still reach
+ * another node, so the window should be longer than the usual replica lag, not a guarantee.
+ */
+@Component
+public class ReadYourWrites implements TransactionExecutionListener {
+	@Value("${replica.read-your-writes-window:PT5S}")
+	private Duration window;
+	@Value("${replica.read-your-writes-max-size:100000}")
+	private long maxSize;
+	
+	private Cache<String, Boolean> recentWriters;
+	
+	@PostConstruct
+	private void init() {
+		recentWriters = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfterWrite(window)
+				.build();
+	}
+	
+	public void wrote(final String principal) {
+		recentWriters.put(principal, Boolean.TRUE);
+	}
+	
+	@Override
+	public void afterCommit(final TransactionExecution transaction, final Throwable commitFailure) {
+		final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if (commitFailure == null && transaction.isNewTransaction() && !transaction.isReadOnly() && authentication != null)
+			wrote(authentication.getName());
+	}
+	
+	/**
+	 * @return true if the principal of the current request changed data within the window
+	 */
+	public boolean requiresPrimary() {
+		final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication != null && recentWriters.getIfPresent(authentication.getName()) != null;
+	}
+}
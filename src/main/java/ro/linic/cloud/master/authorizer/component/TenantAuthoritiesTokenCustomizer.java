@@ -0,0 +1,81 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AuthorizationGrantAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
+import org.springframework.stereotype.Component;
+
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
+import ro.linic.util.commons.NumberUtils;
+
+/**
+ * Embeds the authorities of the logged user within one tenant in the issued access tokens, so resource
+ * servers can authorize requests locally instead of calling <code>/user/{principal}/authorities</code>.
+ * <br>
+ * The client selects the tenant with the <code>tenant_id</code> parameter, either on the authorization
+ * request(kept for every token issued from that authorization, including refreshes) or on the token request,
+ * which takes precedence. The token then carries the <code>tenant_id</code> claim and the
+ * <code>tenant_authorities</code> claim, which is the {@link AuthoritySet} bitmask of the tenant and global
+ * roles of the user at the time of issuing.
+ * <br>
+ * Tokens issued to clients(client_credentials) or without a tenant are not changed.
+ */
+@Component
+public class TenantAuthoritiesTokenCustomizer implements OAuth2TokenCustomizer<JwtEncodingContext> {
+	public static final String TENANT_PARAMETER = "tenant_id";
+	public static final String TENANT_CLAIM = "tenant_id";
+	public static final String AUTHORITIES_CLAIM = "tenant_authorities";
+	
+	@Autowired private AuthorityResolver authorityResolver;
+	
+	@Override
+	public void customize(final JwtEncodingContext context) {
+		if (!OAuth2TokenType.ACCESS_TOKEN.equals(context.getTokenType()))
+			return;
+		
+		final Authentication principal = context.getPrincipal();
+		if (principal == null || principal instanceof OAuth2ClientAuthenticationToken)
+			return;
+		
+		requestedTenant(context).ifPresent(tenantId ->
+		{
+			final int userId = NumberUtils.parseToInt(principal.getName());
+			context.getClaims()
+					.claim(TENANT_CLAIM, tenantId)
+					.claim(AUTHORITIES_CLAIM, authorityResolver.authorities(userId, tenantId).mask());
+		});
+	}
+	
+	private Optional<Integer> requestedTenant(final JwtEncodingContext context) {
+		return Optional.<Map<String, Object>>ofNullable(tokenRequestParameters(context))
+				.map(parameters -> parameters.get(TENANT_PARAMETER))
+				.or(() -> Optional.ofNullable(authorizationRequestParameters(context))
+						.map(parameters -> parameters.get(TENANT_PARAMETER)))
+				.map(String::valueOf)
+				.map(NumberUtils::parseToInt)
+				.filter(tenantId -> tenantId > 0);
+	}
+	
+	private Map<String, Object> tokenRequestParameters(final JwtEncodingContext context) {
+		return context.getAuthorizationGrant() instanceof OAuth2AuthorizationGrantAuthenticationToken grant ?
+				grant.getAdditionalParameters() : null;
+	}
+	
+	private Map<String, Object> authorizationRequestParameters(final JwtEncodingContext context) {
+		final OAuth2Authorization authorization = context.getAuthorization();
+		if (authorization == null)
+			return null;
+		
+		final OAuth2AuthorizationRequest authorizationRequest = authorization.getAttribute(OAuth2AuthorizationRequest.class.getName());
+		return authorizationRequest != null ? authorizationRequest.getAdditionalParameters() : null;
+	}
+}
@@ -0,0 +1,148 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion.Phase;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantDeletionRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+/**
+ * Deletes tenants in the background, in chunks of at most <code>jobs.tenant-deletion.chunk-size</code> rows.
+ * Each chunk runs in its own short transaction, together with the progress update of the {@link TenantDeletion},
+ * going through the {@link Phase}s in order:
+ * <ol>
+ * <li>the invite tokens of the tenant</li>
+ * <li>the assignments of the tenant roles to users</li>
+ * <li>the tenant roles</li>
+ * <li>the tenant itself, audited with the counts of the rows above as commit properties</li>
+ * </ol>
+ * While the deletion runs, the {@link TenantWriteGuard} rejects writes to the tenant. The chunks are driven by
+ * {@link JobScheduler#deleteTenants()}.
+ */
+@Component
+public class TenantDeleter {
+	public static final String INVITE_TOKENS_DELETED = "inviteTokensDeleted";
+	public static final String ROLE_ASSIGNMENTS_DELETED = "roleAssignmentsDeleted";
+	public static final String ROLES_DELETED = "rolesDeleted";
+	
+	@Autowired private TenantDeletionRepository deletionRepo;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private AuthorityResolver authorityResolver;
+	@Autowired private Auditor auditor;
+	@Autowired private PlatformTransactionManager transactionManager;
+	
+	@Value("${jobs.tenant-deletion.chunk-size:1000}")
+	private int chunkSize;
+	
+	private TransactionTemplate chunkTransaction;
+	
+	@PostConstruct
+	private void init() {
+		chunkTransaction = new TransactionTemplate(transactionManager);
+	}
+	
+	/**
+	 * Blocks the tenant for writes, within the current transaction, and queues it for deletion.
+	 * From then on the users have no authorities within the tenant.
+	 */
+	public TenantDeletion request(final Tenant tenant, final String requestedBy) {
+		final TenantDeletion deletion = new TenantDeletion();
+		deletion.setTenantId(tenant.getId());
+		deletion.setTenantName(tenant.getName());
+		deletion.setRequestedBy(requestedBy);
+		deletion.setRequestedAt(Instant.now());
+		final TenantDeletion saved = deletionRepo.save(deletion);
+		authorityResolver.evictTenant(tenant.getId());
+		return saved;
+	}
+	
+	/**
+	 * @return true from the moment the deletion of the tenant is requested, also after it completed
+	 */
+	public boolean isDeleting(final int tenantId) {
+		return deletionRepo.existsById(tenantId);
+	}
+	
+	public Optional<TenantDeletion> status(final int tenantId) {
+		return deletionRepo.findById(tenantId);
+	}
+	
+	/**
+	 * @return the ids of the tenants with an unfinished deletion, oldest request first
+	 */
+	public List<Integer> pending() {
+		return deletionRepo.findAllByPhaseNotOrderByRequestedAt(Phase.DONE).stream()
+				.map(TenantDeletion::getTenantId)
+				.toList();
+	}
+	
+	/**
+	 * Runs the next chunk of the deletion, in its own transaction
+	 *
+	 * @return false once the tenant is deleted
+	 */
+	public boolean deleteChunk(final int tenantId) {
+		return chunkTransaction.execute(status ->
+		{
+			final TenantDeletion deletion = deletionRepo.findById(tenantId).get();
+			switch (deletion.getPhase()) {
+			case INVITE_TOKENS -> {
+				final int deleted = tokenRepo.deleteAllOfTenant(tenantId, chunkSize);
+				deletion.setInviteTokensDeleted(deletion.getInviteTokensDeleted() + deleted);
+				if (deleted < chunkSize)
+					deletion.setPhase(Phase.ROLE_ASSIGNMENTS);
+			}
+			case ROLE_ASSIGNMENTS -> {
+				final int deleted = userRepo.removeRolesOfTenantFromUsers(tenantId, chunkSize);
+				authorityResolver.evictTenant(tenantId);
+				deletion.setRoleAssignmentsDeleted(deletion.getRoleAssignmentsDeleted() + deleted);
+				if (deleted < chunkSize)
+					deletion.setPhase(Phase.ROLES);
+			}
+			case ROLES -> {
+				final int deleted = roleRepo.removeUnassignedOfTenant(tenantId, chunkSize);
+				deletion.setRolesDeleted(deletion.getRolesDeleted() + deleted);
+				if (deleted < chunkSize)
+					deletion.setPhase(Phase.TENANT);
+			}
+			case TENANT -> deleteTenant(deletion);
+			case DONE -> {}
+			}
+			return deletion.getPhase() != Phase.DONE;
+		});
+	}
+	
+	private void deleteTenant(final TenantDeletion deletion) {
+		final int tenantId = deletion.getTenantId();
+		// writes that were already running when the deletion was requested may have added rows to finished phases
+		if (tokenRepo.existsByTenant_Id(tenantId) || roleRepo.existsByTenant_Id(tenantId)) {
+			deletion.setPhase(Phase.INVITE_TOKENS);
+			return;
+		}
+		
+		auditor.commitProperty(INVITE_TOKENS_DELETED, String.valueOf(deletion.getInviteTokensDeleted()));
+		auditor.commitProperty(ROLE_ASSIGNMENTS_DELETED, String.valueOf(deletion.getRoleAssignmentsDeleted()));
+		auditor.commitProperty(ROLES_DELETED, String.valueOf(deletion.getRolesDeleted()));
+		tenantRepo.deleteById(tenantId);
+		authorityResolver.evictTenant(tenantId);
+		deletion.setPhase(Phase.DONE);
+		deletion.setCompletedAt(Instant.now());
+	}
+}
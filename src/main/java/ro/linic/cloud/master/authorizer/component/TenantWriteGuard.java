@@ -0,0 +1,49 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.common.I18n;
+
+/**
+ * Rejects with 409 the writes(any request but GET, HEAD and OPTIONS) to a tenant, selected by the
+ * <code>X-TenantID</code> header, whose deletion was requested from the {@link TenantDeleter}. This way the
+ * deletion job never competes with live writes for the rows it deletes.
+ */
+@Component
+public class TenantWriteGuard implements HandlerInterceptor {
+	private static final String TENANT_HEADER = "X-TenantID";
+	
+	@Autowired private TenantDeleter tenantDeleter;
+	@Autowired private I18n i18n;
+	
+	@Override
+	public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+		final HttpMethod method = HttpMethod.valueOf(request.getMethod());
+		if (method.equals(HttpMethod.GET) || method.equals(HttpMethod.HEAD) || method.equals(HttpMethod.OPTIONS))
+			return true;
+		
+		final String header = request.getHeader(TENANT_HEADER);
+		if (header == null)
+			return true;
+		
+		final int tenantId;
+		try {
+			tenantId = Integer.parseInt(header.trim());
+		} catch (final NumberFormatException e) {
+			// left to the controller to reject
+			return true;
+		}
+		
+		if (tenantDeleter.isDeleting(tenantId))
+			throw new ResponseStatusException(HttpStatus.CONFLICT, i18n.msg(Messages.TenantDeleting, tenantId));
+		return true;
+	}
+}
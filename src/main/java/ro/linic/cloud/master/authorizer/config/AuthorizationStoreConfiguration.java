@@ -0,0 +1,32 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+import ro.linic.cloud.master.authorizer.component.JdbcAuthorizationStore;
+import ro.linic.cloud.master.authorizer.component.MemoryAuthorizationStore;
+
+/**
+ * Selects where the authorization codes and the issued tokens are kept, with <code>authorization.store</code>:
+ * <ul>
+ * <li>memory(default) - {@link MemoryAuthorizationStore}, bounded and per node</li>
+ * <li>jdbc - {@link JdbcAuthorizationStore}, shared by all nodes and kept across restarts</li>
+ * </ul>
+ */
+@Configuration
+public class AuthorizationStoreConfiguration {
+	public enum Store { MEMORY, JDBC }
+	
+	@Value("${authorization.store:memory}")
+	private Store store;
+	
+	@Bean
+	public OAuth2AuthorizationService authorizationService() {
+		return switch (store) {
+		case MEMORY -> new MemoryAuthorizationStore();
+		case JDBC -> new JdbcAuthorizationStore();
+		};
+	}
+}
@@ -0,0 +1,99 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.ReadYourWrites;
+
+/**
+ * Builds the connection pools, all configured from <code>spring.datasource.*</code> and
+ * <code>spring.datasource.hikari.*</code>, and routes between them with a {@link RoutingDataSource}:
+ * <ul>
+ * <li>one primary pool per {@link Workload}(bulkhead); the authorities and admin pools are sized by
+ * <code>bulkhead.authorities.pool-size</code> and <code>bulkhead.admin.pool-size</code></li>
+ * <li>one pool per read replica listed in <code>replica.datasource.urls</code>, if any; they reuse the primary
+ * credentials unless <code>replica.datasource.username/password</code> are set</li>
+ * </ul>
+ * Every pool publishes the <code>hikaricp.*</code> metrics, tagged with its pool name.
+ */
+@Configuration
+public class DataSourceConfiguration {
+	@Autowired private ReadYourWrites readYourWrites;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private Environment environment;
+	
+	@Bean(destroyMethod = "")
+	@Primary
+	public DataSource dataSource(final RoutingDataSource routingDataSource) {
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+	
+	@Bean(destroyMethod = "close")
+	public RoutingDataSource routingDataSource(final DataSourceProperties properties,
+			@Value("${replica.datasource.urls:}") final List<String> replicaUrls,
+			@Value("${replica.datasource.username:}") final String replicaUsername,
+			@Value("${replica.datasource.password:}") final String replicaPassword,
+			@Value("${bulkhead.authorities.pool-size:10}") final int authoritiesPoolSize,
+			@Value("${bulkhead.admin.pool-size:5}") final int adminPoolSize) {
+		final Map<Workload, DataSource> primaryPools = new EnumMap<>(Workload.class);
+		primaryPools.put(Workload.DEFAULT, pool(properties, properties.determineUrl(), properties.determineUsername(),
+				properties.determinePassword(), Workload.DEFAULT.key(), 0));
+		primaryPools.put(Workload.AUTHORITIES, pool(properties, properties.determineUrl(), properties.determineUsername(),
+				properties.determinePassword(), Workload.AUTHORITIES.key(), authoritiesPoolSize));
+		primaryPools.put(Workload.ADMIN, pool(properties, properties.determineUrl(), properties.determineUsername(),
+				properties.determinePassword(), Workload.ADMIN.key(), adminPoolSize));
+		
+		final String username = replicaUsername.isEmpty() ? properties.determineUsername() : replicaUsername;
+		final String password = replicaUsername.isEmpty() ? properties.determinePassword() : replicaPassword;
+		final List<DataSource> replicas = new ArrayList<>();
+		for (int i = 0; i < replicaUrls.size(); i++)
+			replicas.add(pool(properties, replicaUrls.get(i), username, password, "replica-" + i, 0));
+		
+		final RoutingDataSource routingDataSource = new RoutingDataSource(primaryPools, replicas, readYourWrites);
+		routingDataSource.afterPropertiesSet();
+		return routingDataSource;
+	}
+	
+	/**
+	 * @param maxSize the maximum pool size; 0 keeps the one of <code>spring.datasource.hikari</code>
+	 */
+	private HikariDataSource pool(final DataSourceProperties properties, final String url, final String username,
+			final String password, final String name, final int maxSize) {
+		final HikariDataSource pool = properties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class)
+				.url(url)
+				.username(username)
+				.password(password)
+				.build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+		pool.setPoolName(name);
+		if (maxSize > 0) {
+			pool.setMaximumPoolSize(maxSize);
+			// the pool fills itself up to minimumIdle, which defaults to the maximum size
+			if (pool.getMinimumIdle() > maxSize)
+				pool.setMinimumIdle(maxSize);
+		}
+		pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+		return pool;
+	}
+}
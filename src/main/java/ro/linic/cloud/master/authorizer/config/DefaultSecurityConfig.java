@@ -2,6 +2,9 @@ package ro.linic.cloud.master.authorizer.config;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -9,21 +12,45 @@ import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.authorization.authentication.ClientSecretAuthenticationProvider;
 import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
 import org.springframework.security.oauth2.server.authorization.config.annotation.web.configurers.OAuth2AuthorizationServerConfigurer;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
+
+import com.nimbusds.jose.jwk.JWK;
+
+import ro.linic.cloud.master.authorizer.component.ClientSecretCache;
+import ro.linic.cloud.master.authorizer.component.JwkKeyRing;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true)
 public class DefaultSecurityConfig {
+    @Value("${jwk.cache-max-age:PT1H}")
+    private Duration jwkSetMaxAge;
 
     @Bean
     @Order(1)
-    SecurityFilterChain authorizationServerSecurityFilterChain(final HttpSecurity http) throws Exception {
+    SecurityFilterChain authorizationServerSecurityFilterChain(final HttpSecurity http, final JwkKeyRing keyRing,
+            final AuthorizationServerSettings settings, final ClientSecretCache secretCache) throws Exception {
         OAuth2AuthorizationServerConfiguration.applyDefaultSecurity(http);
+        http.addFilterBefore(new JwkSetFilter(keyRing, settings.getJwkSetEndpoint(), jwkSetMaxAge),
+                SecurityContextHolderFilter.class);
         http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
-            .oidc(withDefaults());    // Enable OpenID Connect 1.0
+            .oidc(withDefaults())    // Enable OpenID Connect 1.0
+            // verify the client secrets through the cache, instead of a full hash verification per token request
+            .clientAuthentication(clientAuthentication -> clientAuthentication
+                    .authenticationProviders(providers -> providers.stream()
+                            .filter(ClientSecretAuthenticationProvider.class::isInstance)
+                            .map(ClientSecretAuthenticationProvider.class::cast)
+                            .forEach(provider -> provider.setPasswordEncoder(secretCache.encoder()))));
         http.oauth2ResourceServer((resourceServer) -> resourceServer
 				.jwt(Customizer.withDefaults()));
         return http.formLogin(withDefaults()).build();
@@ -41,4 +68,21 @@ public class DefaultSecurityConfig {
     	.csrf(csrf -> csrf.disable());
         return http.build();
     }
+
+    /**
+     * Signs the tokens with the current key of the {@link JwkKeyRing}, using the algorithm of that key
+     */
+    @Bean
+    JwtEncoder jwtEncoder(final JwkKeyRing keyRing) {
+        final NimbusJwtEncoder delegate = new NimbusJwtEncoder(keyRing);
+        return parameters -> {
+            final JWK key = keyRing.signingKey();
+            final SignatureAlgorithm algorithm = SignatureAlgorithm.from(key.getAlgorithm().getName());
+            final JwsHeader header = (parameters.getJwsHeader() == null ? JwsHeader.with(algorithm)
+                    : JwsHeader.from(parameters.getJwsHeader()).algorithm(algorithm))
+                    .keyId(key.getKeyID())
+                    .build();
+            return delegate.encode(JwtEncoderParameters.from(header, parameters.getClaims()));
+        };
+    }
 }
\ No newline at end of file
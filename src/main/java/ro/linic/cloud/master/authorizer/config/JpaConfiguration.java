@@ -0,0 +1,28 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables JDBC batching of inserts and updates by default. Entity ids come from pooled sequences,
+ * so Hibernate does not need a round trip per insert to learn the generated id.
+ * Any of these can still be overridden through <code>spring.jpa.properties.hibernate.*</code>.
+ */
+@Configuration
+public class JpaConfiguration {
+	@Value("${jpa.batch-size:50}")
+	private int batchSize;
+	
+	@Bean
+	public HibernatePropertiesCustomizer batchingCustomizer() {
+		return properties ->
+		{
+			properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+			properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+			properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+		};
+	}
+}
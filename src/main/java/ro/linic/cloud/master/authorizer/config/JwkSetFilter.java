@@ -0,0 +1,57 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ro.linic.cloud.master.authorizer.component.JwkKeyRing;
+import ro.linic.cloud.master.authorizer.component.JwkKeyRing.PublishedJwkSet;
+
+/**
+ * Serves the JWK set endpoint from the JSON serialized by the {@link JwkKeyRing} when it was loaded, instead of
+ * serializing the keys on every request, with an ETag and a public <code>Cache-Control</code> of
+ * <code>jwk.cache-max-age</code>. Conditional requests for the current set get 304 Not Modified.
+ */
+class JwkSetFilter extends OncePerRequestFilter {
+	private final JwkKeyRing keyRing;
+	private final RequestMatcher endpointMatcher;
+	private final String cacheControl;
+	
+	JwkSetFilter(final JwkKeyRing keyRing, final String endpointUri, final Duration maxAge) {
+		this.keyRing = keyRing;
+		this.endpointMatcher = new AntPathRequestMatcher(endpointUri, HttpMethod.GET.name());
+		this.cacheControl = CacheControl.maxAge(maxAge).cachePublic().getHeaderValue();
+	}
+	
+	@Override
+	protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+			throws ServletException, IOException {
+		if (!endpointMatcher.matches(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		
+		final PublishedJwkSet jwkSet = keyRing.published();
+		response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+		response.setHeader(HttpHeaders.ETAG, jwkSet.etag());
+		if (jwkSet.etag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(jwkSet.json().length);
+		response.getOutputStream().write(jwkSet.json());
+	}
+}
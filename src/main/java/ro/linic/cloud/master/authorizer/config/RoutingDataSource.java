@@ -0,0 +1,62 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.ReadYourWrites;
+
+/**
+ * Picks the connection pool of the current connection:
+ * <ul>
+ * <li>read-only transactions go to the replicas, round robin, unless the principal wrote recently
+ * (see {@link ReadYourWrites})</li>
+ * <li>everything else goes to the primary pool of the current {@link Workload}</li>
+ * </ul>
+ * The transaction must be known to be read-only when the connection is taken, so this data source has to
+ * be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+	private final ReadYourWrites readYourWrites;
+	private final List<String> replicaKeys;
+	private final AtomicInteger next = new AtomicInteger();
+	
+	public RoutingDataSource(final Map<Workload, DataSource> primaryPools, final List<DataSource> replicas, final ReadYourWrites readYourWrites) {
+		this.readYourWrites = readYourWrites;
+		final Map<Object, Object> targets = new HashMap<>();
+		primaryPools.forEach((workload, pool) -> targets.put(workload.key(), pool));
+		for (int i = 0; i < replicas.size(); i++)
+			targets.put("replica-" + i, replicas.get(i));
+		replicaKeys = targets.keySet().stream().map(String.class::cast).filter(key -> key.startsWith("replica-")).sorted().toList();
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primaryPools.get(Workload.DEFAULT));
+	}
+	
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (readsFromReplica())
+			return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+		return Workload.current().key();
+	}
+	
+	/**
+	 * @return true if the current transaction reads from a replica, which may not have caught up with
+	 * the primary yet; values read this way must not be cached
+	 */
+	public boolean readsFromReplica() {
+		return !replicaKeys.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !readYourWrites.requiresPrimary();
+	}
+	
+	public void close() throws Exception {
+		for (final DataSource dataSource : getResolvedDataSources().values())
+			if (dataSource instanceof AutoCloseable closeable)
+				closeable.close();
+	}
+}
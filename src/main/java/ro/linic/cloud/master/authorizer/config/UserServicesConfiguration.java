@@ -1,6 +1,7 @@
 package ro.linic.cloud.master.authorizer.config;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -8,10 +9,12 @@ import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
@@ -30,6 +33,7 @@ import org.springframework.transaction.annotation.Transactional;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import lombok.extern.java.Log;
+import ro.linic.cloud.master.authorizer.component.PasswordVerifier;
 import ro.linic.cloud.master.authorizer.entity.MultiUser;
 import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
 import ro.linic.cloud.master.authorizer.repository.RoleRepository;
@@ -45,6 +49,26 @@ public class UserServicesConfiguration {
         return new UserDetailsServiceImpl();
     }
 
+    /**
+     * Verifies the form login passwords on the {@link PasswordVerifier} pool and rehashes the passwords whose
+     * encoding is outdated after a successful login
+     */
+    @Bean
+    public DaoAuthenticationProvider daoAuthenticationProvider(final PasswordVerifier passwordVerifier) {
+        final DaoAuthenticationProvider provider = new DaoAuthenticationProvider(passwordVerifier.encoder());
+        provider.setUserDetailsService(userDetailsService());
+        provider.setUserDetailsPasswordService(userDetailsPasswordService());
+        return provider;
+    }
+
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (user, newPassword) -> {
+            userRepository.upgradePassword(Integer.parseInt(user.getUsername()), user.getPassword(), newPassword);
+            return User.withUserDetails(user).password(newPassword).build();
+        };
+    }
+
     @Bean
     public OAuth2UserService<OAuth2UserRequest, OAuth2User> oAuth2UserService() {
         return new OAuth2UserServiceImpl();
@@ -94,7 +118,7 @@ public class UserServicesConfiguration {
             final OAuth2User user = delegate.loadUser(request);
             
             final MultiUser multiUser = userRepository.findByPrincipal(user.getName())
-            		.orElseGet(() -> userRepository.save(MultiUser.builder().principals(Set.of(user.getName())).build()));
+            		.orElseGet(() -> userRepository.save(MultiUser.builder().principals(new HashSet<>(Set.of(user.getName()))).build()));
             final Map<String, Object> attributes = new HashMap<>(user.getAttributes());
             attributes.replace(nameAttribute, String.valueOf(multiUser.getId()));
             
@@ -115,7 +139,7 @@ public class UserServicesConfiguration {
             final OidcUser user = super.loadUser(request);
             
             final MultiUser multiUser = userRepository.findByPrincipal(user.getName())
-            		.orElseGet(() -> userRepository.save(MultiUser.builder().principals(Set.of(user.getName())).displayName(user.getFullName()).build()));
+            		.orElseGet(() -> userRepository.save(MultiUser.builder().principals(new HashSet<>(Set.of(user.getName()))).displayName(user.getFullName()).build()));
             final OidcIdToken idToken = OidcIdToken.withTokenValue(user.getIdToken().getTokenValue())
             		.claim(nameAttribute, String.valueOf(multiUser.getId()))
             		.build();
@@ -0,0 +1,26 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import ro.linic.cloud.master.authorizer.component.BulkheadInterceptor;
+import ro.linic.cloud.master.authorizer.component.TenantWriteGuard;
+
+/**
+ * Registers all the interceptors, in order: the {@link BulkheadInterceptor} takes the permit and selects the pool
+ * of the workload before the {@link TenantWriteGuard} queries the database.
+ */
+@Configuration
+public class WebMvcConfiguration implements WebMvcConfigurer {
+	@Autowired private BulkheadInterceptor bulkheadInterceptor;
+	@Autowired private TenantWriteGuard tenantWriteGuard;
+	
+	@Override
+	public void addInterceptors(final InterceptorRegistry registry) {
+		registry.addInterceptor(bulkheadInterceptor).order(Ordered.HIGHEST_PRECEDENCE);
+		registry.addInterceptor(tenantWriteGuard).order(Ordered.HIGHEST_PRECEDENCE + 1);
+	}
+}
@@ -0,0 +1,21 @@
+package ro.linic.cloud.master.authorizer.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.BulkheadInterceptor;
+
+/**
+ * Runs the annotated endpoint(or all endpoints of the annotated controller) within the bulkhead of the
+ * given workload, see {@link BulkheadInterceptor}. An annotation on the method wins over the one on the class.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Bulkhead {
+	Workload value();
+}
@@ -0,0 +1,211 @@
+package ro.linic.cloud.master.authorizer.controller;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.common.PersistenceUtils;
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.JdbcClientRepository;
+import ro.linic.cloud.master.authorizer.dto.ClientDTO;
+import ro.linic.cloud.master.authorizer.entity.StoredClient;
+
+/**
+ * Manages the OAuth2 registered clients. The client secrets are generated by the server, stored encoded and
+ * returned only once, when created or rotated.
+ */
+@RestController
+@RequestMapping("/client")
+@Bulkhead(Workload.ADMIN)
+public class ClientController {
+	private static final int SECRET_BYTES = 32;
+	
+	@Autowired private I18n i18n;
+	@Autowired private JdbcClientRepository clientRepository;
+	@Autowired private PasswordEncoder passwordEncoder;
+	
+	private final SecureRandom random = new SecureRandom();
+	
+	@GetMapping
+	@Secured("CREATE_TENANTS")
+	public List<ClientDTO> clients() {
+		return clientRepository.findAll().stream()
+				.map(client -> toDTO(client, null))
+				.toList();
+	}
+	
+	@GetMapping("/{clientId}")
+	@Secured("CREATE_TENANTS")
+	public ClientDTO client(@PathVariable final String clientId) {
+		return toDTO(existing(clientId), null);
+	}
+	
+	@PostMapping
+	@Secured("CREATE_TENANTS")
+	@Transactional
+	public ClientDTO createClient(@RequestBody final ClientDTO client) {
+		if (client.getClientId() != null && clientRepository.load(client.getClientId()).isPresent())
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.ClientExists, client.getClientId()));
+		
+		final String secret = generateSecret();
+		final RegisteredClient registeredClient = build(RegisteredClient.withId(UUID.randomUUID().toString())
+				.clientIdIssuedAt(Instant.now())
+				.clientSecret(passwordEncoder.encode(secret)),
+				ClientSettings.builder(), TokenSettings.builder(), client);
+		saveWithUniqueClientId(registeredClient);
+		return toDTO(registeredClient, secret);
+	}
+	
+	/**
+	 * Two requests creating the same client id can both pass the existence check; the second insert then fails on
+	 * {@link StoredClient#CLIENT_ID_UNIQUE_KEY} and is reported like an existing client
+	 */
+	private void saveWithUniqueClientId(final RegisteredClient registeredClient) {
+		try {
+			clientRepository.save(registeredClient);
+		} catch (final DataIntegrityViolationException e) {
+			if (PersistenceUtils.violates(e, StoredClient.CLIENT_ID_UNIQUE_KEY))
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.ClientExists, registeredClient.getClientId()));
+			throw e;
+		}
+	}
+	
+	/**
+	 * Replaces the client, except for its secret
+	 */
+	@PutMapping("/{clientId}")
+	@Secured("CREATE_TENANTS")
+	@Transactional
+	public ClientDTO updateClient(@PathVariable final String clientId, @RequestBody final ClientDTO client) {
+		final RegisteredClient existing = existing(clientId);
+		client.setClientId(clientId);
+		
+		final RegisteredClient registeredClient = build(RegisteredClient.from(existing),
+				ClientSettings.withSettings(existing.getClientSettings().getSettings()),
+				TokenSettings.withSettings(existing.getTokenSettings().getSettings()), client);
+		clientRepository.save(registeredClient);
+		return toDTO(registeredClient, null);
+	}
+	
+	@PostMapping("/{clientId}/secret")
+	@Secured("CREATE_TENANTS")
+	@Transactional
+	public ClientDTO rotateSecret(@PathVariable final String clientId) {
+		final String secret = generateSecret();
+		final RegisteredClient registeredClient = RegisteredClient.from(existing(clientId))
+				.clientSecret(passwordEncoder.encode(secret))
+				.clientSecretExpiresAt(null)
+				.build();
+		clientRepository.save(registeredClient);
+		return toDTO(registeredClient, secret);
+	}
+	
+	@DeleteMapping("/{clientId}")
+	@Secured("CREATE_TENANTS")
+	@Transactional
+	public void deleteClient(@PathVariable final String clientId) {
+		if (!clientRepository.deleteByClientId(clientId))
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.ClientMissing, clientId));
+	}
+	
+	private RegisteredClient existing(final String clientId) {
+		return clientRepository.load(clientId)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.ClientMissing, clientId)));
+	}
+	
+	private RegisteredClient build(final RegisteredClient.Builder builder, final ClientSettings.Builder clientSettings,
+			final TokenSettings.Builder tokenSettings, final ClientDTO client) {
+		clientSettings.requireAuthorizationConsent(client.isRequireAuthorizationConsent())
+				.requireProofKey(client.isRequireProofKey());
+		if (client.getAccessTokenTimeToLive() != null)
+			tokenSettings.accessTokenTimeToLive(client.getAccessTokenTimeToLive());
+		if (client.getRefreshTokenTimeToLive() != null)
+			tokenSettings.refreshTokenTimeToLive(client.getRefreshTokenTimeToLive());
+		
+		try {
+			return builder.clientId(client.getClientId())
+					.clientName(client.getClientName() == null ? client.getClientId() : client.getClientName())
+					.clientAuthenticationMethods(methods ->
+					{
+						methods.clear();
+						client.getClientAuthenticationMethods().forEach(method -> methods.add(new ClientAuthenticationMethod(method)));
+					})
+					.authorizationGrantTypes(grantTypes ->
+					{
+						grantTypes.clear();
+						client.getAuthorizationGrantTypes().forEach(grantType -> grantTypes.add(new AuthorizationGrantType(grantType)));
+					})
+					.redirectUris(uris ->
+					{
+						uris.clear();
+						uris.addAll(client.getRedirectUris());
+					})
+					.postLogoutRedirectUris(uris ->
+					{
+						uris.clear();
+						uris.addAll(client.getPostLogoutRedirectUris());
+					})
+					.scopes(scopes ->
+					{
+						scopes.clear();
+						scopes.addAll(client.getScopes());
+					})
+					.clientSettings(clientSettings.build())
+					.tokenSettings(tokenSettings.build())
+					.build();
+		} catch (final IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.ClientController_InvalidClient, e.getMessage()));
+		}
+	}
+	
+	private String generateSecret() {
+		final byte[] secret = new byte[SECRET_BYTES];
+		random.nextBytes(secret);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+	}
+	
+	private static ClientDTO toDTO(final RegisteredClient registeredClient, final String secret) {
+		final ClientDTO client = new ClientDTO();
+		client.setClientId(registeredClient.getClientId());
+		client.setClientName(registeredClient.getClientName());
+		client.setClientSecret(secret);
+		client.setClientAuthenticationMethods(registeredClient.getClientAuthenticationMethods().stream()
+				.map(ClientAuthenticationMethod::getValue).collect(Collectors.toSet()));
+		client.setAuthorizationGrantTypes(registeredClient.getAuthorizationGrantTypes().stream()
+				.map(AuthorizationGrantType::getValue).collect(Collectors.toSet()));
+		client.setRedirectUris(registeredClient.getRedirectUris());
+		client.setPostLogoutRedirectUris(registeredClient.getPostLogoutRedirectUris());
+		client.setScopes(registeredClient.getScopes());
+		client.setRequireAuthorizationConsent(registeredClient.getClientSettings().isRequireAuthorizationConsent());
+		client.setRequireProofKey(registeredClient.getClientSettings().isRequireProofKey());
+		client.setAccessTokenTimeToLive(registeredClient.getTokenSettings().getAccessTokenTimeToLive());
+		client.setRefreshTokenTimeToLive(registeredClient.getTokenSettings().getRefreshTokenTimeToLive());
+		return client;
+	}
+}
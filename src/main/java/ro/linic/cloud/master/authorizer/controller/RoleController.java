@@ -6,12 +6,11 @@ import static ro.linic.util.commons.StringUtils.globalIsMatch;
 import static ro.linic.util.commons.StringUtils.isEmpty;
 import static ro.linic.util.commons.StringUtils.processForStoring;
 
-import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,8 +26,13 @@ import org.springframework.web.server.ResponseStatusException;
 
 import ro.linic.cloud.master.authorizer.Messages;
 import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.common.PersistenceUtils;
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.Auditor;
+import ro.linic.cloud.master.authorizer.component.AuthorityResolver;
 import ro.linic.cloud.master.authorizer.dto.RoleUpdateDTO;
 import ro.linic.cloud.master.authorizer.entity.Authority;
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
 import ro.linic.cloud.master.authorizer.entity.Role;
 import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
 import ro.linic.cloud.master.authorizer.repository.RoleRepository;
@@ -37,11 +41,19 @@ import ro.linic.util.commons.StringUtils.TextFilterMethod;
 
 @RestController
 @RequestMapping("/role")
+@Bulkhead(Workload.ADMIN)
 public class RoleController {
+	/**
+	 * Javers commit property of a role deletion: the number of users the role was taken from
+	 */
+	public static final String REMOVED_FROM_USERS = "removedFromUsers";
+	
 	@Autowired private I18n i18n;
 	@Autowired private MultiUserRepository userRepo;
 	@Autowired private RoleRepository roleRepo;
 	@Autowired private TenantRepository tenantRepo;
+	@Autowired private AuthorityResolver authorityResolver;
+	@Autowired private Auditor auditor;
 	
 	@PostMapping
 	@Secured("CREATE_ROLES")
@@ -54,10 +66,10 @@ public class RoleController {
 		role.setTenant(tenantRepo.findById(tenantId).get());
 		validateRole(role);
 		
-		if (rolenameIsUsed(role))
+		if (rolenameIsUsed(role, 0))
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_RoleExists));
 		
-		return roleRepo.save(role);
+		return saveWithUniqueName(role);
 	}
 	
 	private void validateRole(final Role role) {
@@ -69,10 +81,8 @@ public class RoleController {
 		if (role.isSystem())
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_SystemRoleErr));
 		
-		final Set<Authority> authorities = role.getAuthorities();
-		final Set<Authority> invalidAuthorities = authorities.stream()
-			.filter(auth -> !authorities.containsAll(Authority.AUTHORITY_TO_REQUIRED_AUTH.getOrDefault(auth, List.of())))
-			.collect(Collectors.toUnmodifiableSet());
+		final AuthoritySet authorities = AuthoritySet.of(role.getAuthorities());
+		final AuthoritySet invalidAuthorities = authorities.withMissingRequirements();
 		
 		// check that all required authorities are added for the selected authorities
 		if (!invalidAuthorities.isEmpty())
@@ -82,9 +92,7 @@ public class RoleController {
 					.sorted()
 					.map(i18n::msg)
 					.collect(Collectors.joining(LIST_SEPARATOR));
-			final String requiredAuths = invalidAuthorities.stream()
-					.flatMap(invalidAuth -> Authority.AUTHORITY_TO_REQUIRED_AUTH.get(invalidAuth).stream())
-					.distinct()
+			final String requiredAuths = invalidAuthorities.requirements().stream()
 					.map(Authority::toString)
 					.sorted()
 					.map(i18n::msg)
@@ -94,7 +102,7 @@ public class RoleController {
 		}
 		
 		// check that the role contains only user visible authorities
-		if (authorities.stream().anyMatch(auth -> !Authority.ALL_TENANT_AUTHORITIES.contains(auth)))
+		if (!AuthoritySet.ALL_TENANT_AUTHORITIES.containsAll(authorities))
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_NotTenantAuth,
 					Role.authoritiesToText(role.getAuthorities(), LIST_SEPARATOR, i18n)));
 		
@@ -111,8 +119,22 @@ public class RoleController {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_SystemRoleErr));
 	}
 	
-	private boolean rolenameIsUsed(final Role role) {
-		return !roleRepo.findByName(role.getName()).isEmpty();
+	private boolean rolenameIsUsed(final Role role, final long excludedRoleId) {
+		return roleRepo.existsInTenantByName(role.getTenantId(), role.getName(), excludedRoleId);
+	}
+	
+	/**
+	 * Flushes right away, so a name taken by a concurrent request after {@link #rolenameIsUsed(Role, long)} is reported
+	 * by the {@link Role#NAME_UNIQUE_INDEX} index here, with the same error
+	 */
+	private Role saveWithUniqueName(final Role role) {
+		try {
+			return roleRepo.saveAndFlush(role);
+		} catch (final DataIntegrityViolationException e) {
+			if (PersistenceUtils.violates(e, Role.NAME_UNIQUE_INDEX))
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_RoleExists));
+			throw e;
+		}
 	}
 	
 	@PutMapping
@@ -123,7 +145,6 @@ public class RoleController {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleMissing, roleDto.getId()));
 		
 		final Role dbRole = roleRepo.findById(roleDto.getId()).get();
-		final String oldName = dbRole.getName();
 	
 		final Role tempRole = new Role();
 		tempRole.setTenant(dbRole.getTenant());
@@ -137,7 +158,7 @@ public class RoleController {
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_RoleTenantMismatch, 
 					dbRole.getTenantId(), tenantId));
 		
-		if (globalIsMatch(oldName, roleDto.getName(), TextFilterMethod.NOT_EQUALS) && rolenameIsUsed(tempRole))
+		if (rolenameIsUsed(tempRole, dbRole.getId()))
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_RoleExists));
 		
 		dbRole.setName(processForStoring(roleDto.getName()));
@@ -145,8 +166,9 @@ public class RoleController {
 		dbRole.setAuthorities(roleDto.getAuthorities().stream()
 				.filter(auth -> Authority.ALL_TENANT_AUTHORITIES.contains(auth))
 				.collect(Collectors.toSet()));
+		authorityResolver.evictTenant(dbRole.getTenantId());
 		
-		return roleRepo.save(dbRole);
+		return saveWithUniqueName(dbRole);
 	}
 	
 	@DeleteMapping("/{id}")
@@ -165,7 +187,9 @@ public class RoleController {
 		if (toBeRemoved.isSystem())
 			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.RoleController_SystemRoleErr));
 		
-		userRepo.findAllByRolesContains(toBeRemoved).forEach(mu -> mu.getRoles().remove(toBeRemoved));
+		final int holders = userRepo.removeRoleFromAllUsers(roleId);
+		auditor.commitProperty(REMOVED_FROM_USERS, String.valueOf(holders));
 		roleRepo.delete(toBeRemoved);
+		authorityResolver.evictTenant(toBeRemoved.getTenantId());
 	}
 }
@@ -8,32 +8,41 @@ import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.AuthenticatedPrincipal;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import ro.linic.cloud.master.authorizer.Messages;
 import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.AuthorityResolver;
+import ro.linic.cloud.master.authorizer.component.PrincipalResolver;
+import ro.linic.cloud.master.authorizer.component.TenantDeleter;
 import ro.linic.cloud.master.authorizer.entity.Authority;
 import ro.linic.cloud.master.authorizer.entity.MultiUser;
 import ro.linic.cloud.master.authorizer.entity.Role;
 import ro.linic.cloud.master.authorizer.entity.Tenant;
-import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion;
 import ro.linic.cloud.master.authorizer.repository.RoleRepository;
 import ro.linic.cloud.master.authorizer.repository.TenantRepository;
-import ro.linic.util.commons.NumberUtils;
 
 @RestController
 @RequestMapping("/tenant")
+@Bulkhead(Workload.ADMIN)
 public class TenantController {
 	@Autowired private I18n i18n;
-	@Autowired private MultiUserRepository userRepository;
 	@Autowired private RoleRepository roleRepo;
 	@Autowired private TenantRepository tenantRepo;
+	@Autowired private AuthorityResolver authorityResolver;
+	@Autowired private PrincipalResolver principalResolver;
+	@Autowired private TenantDeleter tenantDeleter;
 	
 	@PostMapping
 	@Secured("CREATE_TENANTS")
@@ -54,17 +63,13 @@ public class TenantController {
 		adminRole.setAuthorities(Authority.ALL_TENANT_AUTHORITIES);
 		adminRole = roleRepo.save(adminRole);
 		
-		final Optional<MultiUser> userToChange = findUser(principal);
+		final Optional<MultiUser> userToChange = principalResolver.findUser(principal.getName());
 		userToChange.get().getRoles().add(adminRole);
+		authorityResolver.evict(userToChange.get().getId(), tenant.getId());
 		
 		return tenant;
 	}
 	
-	private Optional<MultiUser> findUser(final AuthenticatedPrincipal principal) {
-		return userRepository.findById(NumberUtils.parseToInt(principal.getName()))
-        		.or(() -> userRepository.findByPrincipal(principal.getName()));
-	}
-	
 	@PutMapping
 	@Secured("MODIFY_TENANT")
 	@Transactional
@@ -78,4 +83,33 @@ public class TenantController {
 		tenant.setName(name);
 		return tenant;
 	}
+	
+	/**
+	 * Blocks the tenant for writes and deletes it in the background, see {@link TenantDeleter}.
+	 * The tenant that holds the SysAdmin role cannot be deleted.
+	 */
+	@DeleteMapping
+	@Secured("CREATE_TENANTS")
+	@Transactional
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	public TenantDeletion deleteTenant(@AuthenticationPrincipal final AuthenticatedPrincipal principal,
+			@RequestHeader("X-TenantID") final int tenantId) {
+		final Optional<Tenant> tenant = tenantRepo.findById(tenantId);
+		
+		if (tenant.isEmpty())
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.TenantMissing, tenantId));
+		if (roleRepo.existsInTenantByName(tenantId, Role.SYSADMIN, 0))
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.TenantController_SystemTenant));
+		
+		return tenantDeleter.request(tenant.get(), principal.getName());
+	}
+	
+	@GetMapping("/deletion")
+	@Secured("CREATE_TENANTS")
+	@Transactional(readOnly = true)
+	public TenantDeletion deletionStatus(@RequestHeader("X-TenantID") final int tenantId) {
+		return tenantDeleter.status(tenantId)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+						i18n.msg(Messages.TenantController_DeletionMissing, tenantId)));
+	}
 }
@@ -2,13 +2,15 @@ package ro.linic.cloud.master.authorizer.controller;
 
 import static ro.linic.util.commons.PresentationUtils.EMPTY_STRING;
 
-import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.AuthenticatedPrincipal;
 import org.springframework.security.core.Authentication;
@@ -23,6 +25,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -30,17 +33,21 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import ro.linic.cloud.master.authorizer.Messages;
 import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.common.Workload;
+import ro.linic.cloud.master.authorizer.component.AuthorityResolver;
+import ro.linic.cloud.master.authorizer.component.InviteTokenManager;
+import ro.linic.cloud.master.authorizer.component.PrincipalResolver;
+import ro.linic.cloud.master.authorizer.component.TenantDeleter;
+import ro.linic.cloud.master.authorizer.dto.PrincipalAuthoritiesDTO;
+import ro.linic.cloud.master.authorizer.dto.PrincipalTenantDTO;
 import ro.linic.cloud.master.authorizer.entity.Authority;
 import ro.linic.cloud.master.authorizer.entity.InviteToken;
 import ro.linic.cloud.master.authorizer.entity.MultiUser;
 import ro.linic.cloud.master.authorizer.entity.Role;
 import ro.linic.cloud.master.authorizer.entity.Tenant;
-import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
 import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
 import ro.linic.cloud.master.authorizer.repository.RoleRepository;
 import ro.linic.cloud.master.authorizer.repository.TenantRepository;
-import ro.linic.util.commons.NumberUtils;
-import ro.linic.util.commons.PasswordGenerator;
 
 @RestController
 @RequestMapping("/user")
@@ -49,49 +56,61 @@ public class UserController {
 	@Autowired private TenantRepository tenantRepo;
 	@Autowired private MultiUserRepository userRepo;
 	@Autowired private RoleRepository roleRepo;
-	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private InviteTokenManager inviteTokenManager;
+	@Autowired private AuthorityResolver authorityResolver;
+	@Autowired private PrincipalResolver principalResolver;
+	@Autowired private TenantDeleter tenantDeleter;
+	@Value("${authorities.batch.max-size:1000}") private int maxBatchSize;
+	@Value("${invite.batch.max-size:1000}") private int maxInviteBatchSize;
 	private SecurityContextLogoutHandler logoutHandler = new SecurityContextLogoutHandler();
 	
 	@GetMapping
+	@Transactional(readOnly = true)
     public String user(final Authentication principal) {
-        return findUser(principal.getName())
+        return principalResolver.findUser(principal.getName())
                 .map(MultiUser::getDisplayName)
                 .orElse(EMPTY_STRING);
     }
 	
 	@GetMapping("/authorities")
+	@Bulkhead(Workload.AUTHORITIES)
     public Set<Authority> authorities(final Authentication principal,
     		@RequestHeader("X-TenantID") final int tenantId) {
-        return findUser(principal.getName())
-        		.stream()
-                .flatMap(u -> u.authoritiesOfTenantAndGlobal(tenantId))
-                .collect(Collectors.toSet());
+        return authorityResolver.authorities(principal.getName(), tenantId).toSet();
     }
 	
 	@Secured("SCOPE_authorities.read")
 	@GetMapping("/{principal}/authorities")
+	@Bulkhead(Workload.AUTHORITIES)
     public Set<Authority> userAuthorities(@PathVariable final String principal,
     		@RequestHeader("X-TenantID") final int tenantId) {
-        return findUser(principal)
-        		.stream()
-                .flatMap(u -> u.authoritiesOfTenantAndGlobal(tenantId))
-                .collect(Collectors.toSet());
+        return authorityResolver.authorities(principal, tenantId).toSet();
     }
 	
-	private Optional<MultiUser> findUser(final String principalName) {
-		return userRepo.findById(NumberUtils.parseToInt(principalName))
-        		.or(() -> userRepo.findByPrincipal(principalName));
+	@Secured("SCOPE_authorities.read")
+	@PostMapping("/authorities:batch")
+	@Bulkhead(Workload.AUTHORITIES)
+	public List<PrincipalAuthoritiesDTO> batchUserAuthorities(@RequestBody final List<PrincipalTenantDTO> requests) {
+		if (requests.size() > maxBatchSize)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.UserController_BatchTooLarge, maxBatchSize));
+		
+		return authorityResolver.authorities(requests);
 	}
 	
 	@DeleteMapping
 	@Transactional
 	public void deleteMyself(final Authentication authentication, final HttpServletRequest request,
 			final HttpServletResponse response) {
-		findUser(authentication.getName()).ifPresent(userRepo::delete);
+		principalResolver.findUser(authentication.getName()).ifPresent(user ->
+		{
+			userRepo.delete(user);
+			authorityResolver.evictUser(user.getId());
+		});
 		this.logoutHandler.logout(request, response, authentication);
 	}
 	
 	@DeleteMapping("/{id}")
+	@Bulkhead(Workload.ADMIN)
 	@Secured("DELETE_USERS")
 	@Transactional
 	public void removeFromTenant(@PathVariable(name = "id") final Integer id,
@@ -110,9 +129,11 @@ public class UserController {
 			
 			userToRemove.get().getRoles().remove(role);
 		});
+		authorityResolver.evict(id, tenantId);
 	}
 	
 	@PostMapping
+	@Bulkhead(Workload.ADMIN)
 	@Secured("CREATE_USERS")
 	@Transactional
 	public String inviteToTenant(final Authentication principal, @RequestHeader("X-TenantID") final int tenantId,
@@ -122,42 +143,72 @@ public class UserController {
 		if (tenant.isEmpty())
 			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, i18n.msg(Messages.TenantMissing, tenantId));
 		
-		final MultiUser loggedUser = findUser(principal.getName()).get();
+		final MultiUser loggedUser = principalResolver.findUser(principal.getName()).get();
 		final Set<Role> newRoles = roleRepo.findAllById(roleIds).stream().collect(Collectors.toSet());
 		
 		validateRoleChange(tenantId, loggedUser, Set.of(), newRoles);
 		
-        final InviteToken token = new InviteToken();
-        token.setTenant(tenant.get());
-        token.setRoles(new HashSet<>(roleIds));
-        token.setToken(PasswordGenerator.withDefaults().generate(32));
-        return tokenRepo.save(token).getToken();
+        return inviteTokenManager.issue(tenant.get(), roleIds);
 	}
 	
-	@GetMapping("/accept/{token}")
+	/**
+	 * Creates <code>count</code> invites to the same roles at once, validating the roles only once.
+	 * The tokens are returned as text, one per line.
+	 */
+	@PostMapping(value = "/invite:batch", produces = MediaType.TEXT_PLAIN_VALUE)
+	@Bulkhead(Workload.ADMIN)
+	@Secured("CREATE_USERS")
 	@Transactional
+	public String inviteToTenantBatch(final Authentication principal, @RequestHeader("X-TenantID") final int tenantId,
+			@RequestParam("count") final int count, @RequestBody final Set<Long> roleIds) {
+		if (count < 1 || count > maxInviteBatchSize)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.UserController_InviteCountInvalid, maxInviteBatchSize));
+		
+		final Optional<Tenant> tenant = tenantRepo.findById(tenantId);
+		
+		if (tenant.isEmpty())
+			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, i18n.msg(Messages.TenantMissing, tenantId));
+		
+		final MultiUser loggedUser = principalResolver.findUser(principal.getName()).get();
+		final Set<Role> newRoles = roleRepo.findAllById(roleIds).stream().collect(Collectors.toSet());
+		
+		validateRoleChange(tenantId, loggedUser, Set.of(), newRoles);
+		
+		return inviteTokenManager.issue(tenant.get(), roleIds, count).stream()
+				.map(token -> token + "\n")
+				.collect(Collectors.joining());
+	}
+	
+	@GetMapping("/accept/{token}")
+	@Transactional(readOnly = true)
 	public InviteToken getInvite(@PathVariable(name = "token") final String token) {
-        return tokenRepo.findById(token).orElse(null);
+        return inviteTokenManager.find(token).orElse(null);
 	}
 	
 	@PostMapping("/accept/{token}")
 	@Transactional
 	public String acceptInvite(final Authentication principal, @PathVariable(name = "token") final String token) {
-	    final Optional<InviteToken> inviteToken = tokenRepo.findById(token);
+	    final Optional<InviteToken> inviteToken = inviteTokenManager.find(token);
 	    
 	    if (inviteToken.isEmpty())
 	    	throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.InviteTokenInvalid));
 	    if (inviteToken.get().isExpired())
 	    	throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.InviteTokenInvalid));
+	    if (tenantDeleter.isDeleting(inviteToken.get().getTenant().getId()))
+	    	throw new ResponseStatusException(HttpStatus.CONFLICT, i18n.msg(Messages.TenantDeleting,
+	    			inviteToken.get().getTenant().getId()));
+	    if (!inviteTokenManager.consume(inviteToken.get()))
+	    	throw new ResponseStatusException(HttpStatus.BAD_REQUEST, i18n.msg(Messages.InviteTokenInvalid));
 	    
-	    final MultiUser loggedUser = findUser(principal.getName()).get();
+	    final MultiUser loggedUser = principalResolver.findUser(principal.getName()).get();
 	    final Set<Role> newRoles = roleRepo.findAllById(inviteToken.get().getRoles()).stream().collect(Collectors.toSet());
 	    loggedUser.getRoles().addAll(newRoles);
-	    tokenRepo.delete(inviteToken.get());
+	    authorityResolver.evict(loggedUser.getId(), inviteToken.get().getTenant().getId());
         return "OK";
 	}
 	
 	@PutMapping("/{id}/roles")
+	@Bulkhead(Workload.ADMIN)
 	@Secured("MODIFY_USER_ROLES")
 	@Transactional
 	public void modifyUserRoles(@AuthenticationPrincipal final AuthenticatedPrincipal principal, @RequestHeader("X-TenantID") final int tenantId,
@@ -167,7 +218,7 @@ public class UserController {
 		if (userToChange.isEmpty())
 			return;
 		
-		final MultiUser loggedUser = findUser(principal.getName()).get();
+		final MultiUser loggedUser = principalResolver.findUser(principal.getName()).get();
 		
 		final Set<Role> newRoles = roleRepo.findAllById(roleIds).stream().collect(Collectors.toSet());
 		final Set<Role> oldRoles = userToChange.get().rolesOfTenant(tenantId).collect(Collectors.toSet());
@@ -176,6 +227,7 @@ public class UserController {
 		
 		userToChange.get().getRoles().removeAll(oldRoles);
 		userToChange.get().getRoles().addAll(newRoles);
+		authorityResolver.evict(id, tenantId);
 	}
 	
 	private void validateRoleChange(final int tenantId, final MultiUser loggedUser, final Set<Role> oldRoles, final Set<Role> newRoles)
@@ -208,7 +260,7 @@ public class UserController {
 	@PutMapping
 	@Transactional
 	public void changeName(final Authentication authentication, @RequestBody final String name) {
-		final MultiUser me = findUser(authentication.getName()).get();
+		final MultiUser me = principalResolver.findUser(authentication.getName()).get();
 		me.setDisplayName(name);
 	}
 }
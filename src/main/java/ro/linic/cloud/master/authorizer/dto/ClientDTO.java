@@ -0,0 +1,26 @@
+package ro.linic.cloud.master.authorizer.dto;
+
+import java.time.Duration;
+import java.util.Set;
+
+import lombok.Data;
+
+/**
+ * A registered client as created and updated through the client endpoints. The client secret is only returned
+ * when it is generated, on creation and rotation.
+ */
+@Data
+public class ClientDTO {
+	private String clientId;
+	private String clientName;
+	private String clientSecret;
+	private Set<String> clientAuthenticationMethods = Set.of();
+	private Set<String> authorizationGrantTypes = Set.of();
+	private Set<String> redirectUris = Set.of();
+	private Set<String> postLogoutRedirectUris = Set.of();
+	private Set<String> scopes = Set.of();
+	private boolean requireAuthorizationConsent;
+	private boolean requireProofKey;
+	private Duration accessTokenTimeToLive;
+	private Duration refreshTokenTimeToLive;
+}
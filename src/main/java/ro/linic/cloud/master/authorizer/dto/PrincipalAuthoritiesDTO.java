@@ -0,0 +1,15 @@
+package ro.linic.cloud.master.authorizer.dto;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ro.linic.cloud.master.authorizer.entity.Authority;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class PrincipalAuthoritiesDTO {
+	private String principal;
+	private int tenantId;
+	private Set<Authority> authorities = Set.of();
+}
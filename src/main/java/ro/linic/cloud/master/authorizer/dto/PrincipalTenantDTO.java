@@ -0,0 +1,11 @@
+package ro.linic.cloud.master.authorizer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class PrincipalTenantDTO {
+	private String principal;
+	private int tenantId;
+}
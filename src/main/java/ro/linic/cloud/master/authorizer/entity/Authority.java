@@ -7,6 +7,10 @@ import java.util.Set;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
 
+/**
+ * The ordinal of each authority is persisted as a bit position in <code>role.authority_mask</code>,
+ * so new authorities must only be appended and existing ones must never be reordered.
+ */
 public enum Authority {
 	MODIFY_TENANT,
 	VIEW_USERS, CREATE_USERS, DELETE_USERS,
@@ -29,4 +33,21 @@ public enum Authority {
 	
 	public static final Set<Authority> ALL_GLOBAL_AUTHORITIES = Set.of(
 			CREATE_TENANTS);
+	
+	private static final long[] REQUIRED_MASKS = new long[values().length];
+	
+	static {
+		AUTHORITY_TO_REQUIRED_AUTH.forEach((auth, required) -> required.forEach(req -> REQUIRED_MASKS[auth.ordinal()] |= req.bit()));
+	}
+	
+	public long bit() {
+		return 1L << ordinal();
+	}
+	
+	/**
+	 * @return the bitmask of the authorities that must be granted together with this authority
+	 */
+	public long requiredMask() {
+		return REQUIRED_MASKS[ordinal()];
+	}
 }
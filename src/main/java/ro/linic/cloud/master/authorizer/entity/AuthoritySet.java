@@ -0,0 +1,111 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import lombok.EqualsAndHashCode;
+
+/**
+ * Immutable set of {@link Authority} values encoded as a <code>long</code> bitmask, where bit
+ * <code>n</code> is the authority with ordinal <code>n</code>. This is the same encoding that is
+ * persisted in <code>role.authority_mask</code>.
+ */
+@EqualsAndHashCode
+public final class AuthoritySet {
+	public static final AuthoritySet EMPTY = new AuthoritySet(0L);
+	public static final AuthoritySet ALL_TENANT_AUTHORITIES = of(Authority.ALL_TENANT_AUTHORITIES);
+	public static final AuthoritySet ALL_GLOBAL_AUTHORITIES = of(Authority.ALL_GLOBAL_AUTHORITIES);
+	
+	private static final Authority[] AUTHORITIES = Authority.values();
+	
+	private final long mask;
+	
+	private AuthoritySet(final long mask) {
+		this.mask = mask;
+	}
+	
+	public static AuthoritySet ofMask(final long mask) {
+		return mask == 0L ? EMPTY : new AuthoritySet(mask);
+	}
+	
+	public static AuthoritySet of(final Collection<Authority> authorities) {
+		return ofMask(maskOf(authorities));
+	}
+	
+	public static long maskOf(final Collection<Authority> authorities) {
+		long mask = 0L;
+		if (authorities == null)
+			return mask;
+		
+		for (final Authority authority : authorities)
+			mask |= authority.bit();
+		return mask;
+	}
+	
+	public long mask() {
+		return mask;
+	}
+	
+	public boolean isEmpty() {
+		return mask == 0L;
+	}
+	
+	public boolean contains(final Authority authority) {
+		return (mask & authority.bit()) != 0L;
+	}
+	
+	public boolean containsAll(final AuthoritySet other) {
+		return (other.mask & ~mask) == 0L;
+	}
+	
+	public AuthoritySet union(final AuthoritySet other) {
+		return ofMask(mask | other.mask);
+	}
+	
+	public AuthoritySet minus(final AuthoritySet other) {
+		return ofMask(mask & ~other.mask);
+	}
+	
+	/**
+	 * @return the authorities in this set whose required authorities(see {@link Authority#AUTHORITY_TO_REQUIRED_AUTH})
+	 * are not all in this set
+	 */
+	public AuthoritySet withMissingRequirements() {
+		long invalid = 0L;
+		for (long remaining = mask; remaining != 0L; remaining &= remaining - 1) {
+			final Authority authority = AUTHORITIES[Long.numberOfTrailingZeros(remaining)];
+			if ((authority.requiredMask() & ~mask) != 0L)
+				invalid |= authority.bit();
+		}
+		return ofMask(invalid);
+	}
+	
+	/**
+	 * @return the union of the authorities required by the authorities in this set
+	 */
+	public AuthoritySet requirements() {
+		long required = 0L;
+		for (long remaining = mask; remaining != 0L; remaining &= remaining - 1)
+			required |= AUTHORITIES[Long.numberOfTrailingZeros(remaining)].requiredMask();
+		return ofMask(required);
+	}
+	
+	public Stream<Authority> stream() {
+		return Stream.of(AUTHORITIES).filter(this::contains);
+	}
+	
+	public Set<Authority> toSet() {
+		final EnumSet<Authority> authorities = EnumSet.noneOf(Authority.class);
+		for (long remaining = mask; remaining != 0L; remaining &= remaining - 1)
+			authorities.add(AUTHORITIES[Long.numberOfTrailingZeros(remaining)]);
+		return Collections.unmodifiableSet(authorities);
+	}
+	
+	@Override
+	public String toString() {
+		return toSet().toString();
+	}
+}
@@ -7,18 +7,32 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.hibernate.annotations.Type;
+import org.springframework.data.domain.Persistable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 
 @Entity
+@Table(indexes = {@Index(name = "invite_token_expiry_date_idx", columnList = "expiry_date"),
+		@Index(name = "invite_token_tenant_id_idx", columnList = "tenant_id")})
 @Data
-public class InviteToken {
+public class InviteToken implements Persistable<String> {
 	private static final TemporalAmount EXPIRATION = Duration.ofHours(24);
 
     @Id
@@ -35,7 +49,35 @@ public class InviteToken {
     
     private Instant expiryDate = Instant.now().plus(EXPIRATION);
     
+    /**
+     * The token is assigned, not generated, so Spring Data cannot tell new tokens apart by their id;
+     * without this, saving a new token would first SELECT it and could not be batched.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+    
     public boolean isExpired() {
     	return getExpiryDate().isBefore(Instant.now());
     }
+    
+    @JsonIgnore
+    @Override
+    public String getId() {
+    	return token;
+    }
+    
+    @JsonIgnore
+    @Override
+    public boolean isNew() {
+    	return !persisted;
+    }
+    
+    @PostLoad
+    @PrePersist
+    private void markPersisted() {
+    	persisted = true;
+    }
 }
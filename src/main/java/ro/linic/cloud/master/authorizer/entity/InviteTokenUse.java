@@ -0,0 +1,28 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Records that a signed invite token was accepted, so it cannot be accepted twice.
+ * Kept only until the token itself expires.
+ */
+@Entity
+@Table(indexes = @Index(name = "invite_token_use_expiry_date_idx", columnList = "expiry_date"))
+@Data
+public class InviteTokenUse {
+	/**
+	 * The signature of the token
+	 */
+	@Id
+	private String id;
+	
+	@Column(nullable = false)
+	private Instant expiryDate;
+}
@@ -0,0 +1,25 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * A time bound lock on a scheduled job, so only one node of the cluster runs it at a time.
+ * The owner keeps the lease until <code>lockedUntil</code>; after that any node can take it over.
+ */
+@Entity
+@Data
+public class JobLease {
+	@Id
+	private String name;
+	
+	@Column(nullable = false)
+	private String owner;
+	
+	@Column(nullable = false)
+	private Instant lockedUntil;
+}
@@ -1,37 +1,49 @@
 package ro.linic.cloud.master.authorizer.entity;
 
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 
-import org.hibernate.annotations.Type;
-
-import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import ro.linic.cloud.master.authorizer.component.MultiUserCacheListener;
 
 @Entity
+@EntityListeners(MultiUserCacheListener.class)
 @Data @NoArgsConstructor @AllArgsConstructor @Builder
 public class MultiUser {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "multi_user_id_seq")
+	@SequenceGenerator(name = "multi_user_id_seq", sequenceName = "multi_user_id_seq", allocationSize = 50)
 	private int id;
 	
-    @Type(JsonBinaryType.class)
-	@Column(columnDefinition = "jsonb", unique = true)
+	/**
+	 * External principal names mapped to this user; each principal belongs to exactly one user.
+	 * Loaded on first access; lookups by principal go through {@link ro.linic.cloud.master.authorizer.repository.MultiUserRepository}.
+	 * Changing the principals of an existing user does not update the user, so {@link MultiUserCacheListener} does not see it;
+	 * call {@link ro.linic.cloud.master.authorizer.component.PrincipalResolver#evictUserChanged(MultiUser)} after the change.
+	 */
+	@ElementCollection(fetch = FetchType.LAZY)
+	@CollectionTable(name = "user_principal", joinColumns = @JoinColumn(name = "multi_user_id"),
+			indexes = @Index(name = "user_principal_multi_user_id_idx", columnList = "multi_user_id"))
+	@Column(name = "principal", unique = true, nullable = false)
 	@Builder.Default
     private Set<String> principals = new HashSet<>();
 	
@@ -42,7 +54,8 @@ public class MultiUser {
 	@ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
 	@JoinTable(name = "multi_user_role",
 	    joinColumns = {@JoinColumn(name = "multi_user_id")},
-	    inverseJoinColumns = {@JoinColumn(name = "role_id")})
+	    inverseJoinColumns = {@JoinColumn(name = "role_id")},
+	    indexes = @Index(name = "multi_user_role_role_id_idx", columnList = "role_id"))
 	@Builder.Default
 	private Set<Role> roles = new HashSet<>();
 	
@@ -58,15 +71,21 @@ public class MultiUser {
 	}
 
 	public Stream<Authority> allAuthorities() {
-		return getRoles().stream()
-				.flatMap(r -> r.getAuthorities().stream())
-				.distinct();
+		long mask = 0L;
+		for (final Role role : getRoles())
+			mask |= role.getAuthorityMask();
+		return AuthoritySet.ofMask(mask).stream();
 	}
 	
 	public Stream<Authority> authoritiesOfTenantAndGlobal(final int tenantId) {
-		return getRoles().stream()
-				.filter(role -> role.getTenant() == null || Objects.equals(role.getTenantId(), tenantId))
-				.flatMap(r -> r.getAuthorities().stream())
-				.distinct();
+		return authoritySetOfTenantAndGlobal(tenantId).stream();
+	}
+	
+	public AuthoritySet authoritySetOfTenantAndGlobal(final int tenantId) {
+		long mask = 0L;
+		for (final Role role : getRoles())
+			if (role.getTenant() == null || role.getTenant().getId() == tenantId)
+				mask |= role.getAuthorityMask();
+		return AuthoritySet.ofMask(mask);
 	}
 }
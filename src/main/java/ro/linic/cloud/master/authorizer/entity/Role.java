@@ -6,6 +6,8 @@ import java.util.stream.Collectors;
 
 import org.hibernate.annotations.Type;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -14,6 +16,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -25,6 +30,10 @@ import ro.linic.cloud.master.authorizer.common.I18n;
 public class Role {
 	public static final String SYSADMIN = "SysAdmin";
 	public static final String SUPERADMIN = "Administrator";
+	/**
+	 * Unique index on <code>(tenant_id, lower(name))</code>, created by the migrations because it is on an expression
+	 */
+	public static final String NAME_UNIQUE_INDEX = "role_tenant_id_lower_name_key";
 	
 	public static String authoritiesToText(final Set<Authority> authorities, final String separator, final I18n i18n)
 	{
@@ -42,7 +51,8 @@ public class Role {
 	}
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "role_id_seq")
+	@SequenceGenerator(name = "role_id_seq", sequenceName = "role_id_seq", allocationSize = 50)
 	private long id;
 	@Column(nullable = false)
 	@NotBlank
@@ -66,6 +76,30 @@ public class Role {
 	@Column(columnDefinition = "jsonb")
 	private Set<Authority> authorities = new HashSet<>();
 	
+	/**
+	 * Bitmask encoding of authorities(see {@link AuthoritySet}), kept in sync with the jsonb column
+	 * so that authorities can be merged and filtered cheaply, both in Java and in SQL
+	 */
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	@JsonIgnore
+	private long authorityMask;
+	
+	public void setAuthorities(final Set<Authority> authorities) {
+		this.authorities = authorities;
+		syncAuthorityMask();
+	}
+	
+	@PrePersist
+	@PreUpdate
+	private void syncAuthorityMask() {
+		authorityMask = AuthoritySet.maskOf(authorities);
+	}
+	
+	@JsonIgnore
+	public AuthoritySet getAuthoritySet() {
+		return AuthoritySet.ofMask(authorityMask);
+	}
+	
 	public Integer getTenantId() {
 		return tenant != null ? tenant.getId() : null;
 	}
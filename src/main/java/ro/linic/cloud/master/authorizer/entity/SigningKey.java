@@ -0,0 +1,38 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * A key of the token signing key ring. The key is published in the JWK set from the moment it is created, signs
+ * tokens from <code>signingFrom</code> until <code>signingUntil</code>, then stays published until
+ * <code>publishedUntil</code>, so the tokens it signed can still be verified.
+ */
+@Entity
+@Data
+public class SigningKey {
+	@Id
+	private String kid;
+	
+	@Column(nullable = false)
+	private String algorithm;
+	
+	/**
+	 * The JWK including the private key, encrypted when <code>jwk.encryption-key</code> is set
+	 */
+	@Column(nullable = false, columnDefinition = "text")
+	private String jwk;
+	
+	@Column(nullable = false)
+	private Instant signingFrom;
+	
+	@Column(nullable = false)
+	private Instant signingUntil;
+	
+	@Column(nullable = false)
+	private Instant publishedUntil;
+}
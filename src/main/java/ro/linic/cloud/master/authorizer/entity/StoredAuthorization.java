@@ -0,0 +1,83 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * An OAuth2 authorization, for <code>authorization.store=jdbc</code>. Its tokens are {@link StoredToken} rows keyed
+ * by the hash of their value; the state is looked up by its hash as well. The attributes and the token metadata
+ * are JSON serialized with the Spring Security Jackson modules.
+ */
+@Entity
+@Table(indexes = {@Index(name = "stored_authorization_state_hash_idx", columnList = "state_hash"),
+		@Index(name = "stored_authorization_expires_at_idx", columnList = "expires_at")})
+@Data
+public class StoredAuthorization implements Persistable<String> {
+	@Id
+	private String id;
+	
+	@Column(nullable = false)
+	private String registeredClientId;
+	
+	@Column(nullable = false)
+	private String principalName;
+	
+	@Column(nullable = false)
+	private String authorizationGrantType;
+	
+	@Column(columnDefinition = "text")
+	private String authorizedScopes;
+	
+	@Column(columnDefinition = "text")
+	private String attributes;
+	
+	private String stateHash;
+	
+	/**
+	 * When the last token expires; the authorization is purged after that
+	 */
+	@Column(nullable = false)
+	private Instant expiresAt;
+	
+	@OneToMany(mappedBy = "authorization", cascade = CascadeType.ALL, orphanRemoval = true)
+	private List<StoredToken> tokens = new ArrayList<>();
+	
+	/**
+	 * The id is assigned, so Spring Data cannot tell new authorizations apart by it
+	 */
+	@Transient
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	private boolean persisted;
+	
+	@Override
+	public boolean isNew() {
+		return !persisted;
+	}
+	
+	@PostLoad
+	@PrePersist
+	private void markPersisted() {
+		persisted = true;
+	}
+}
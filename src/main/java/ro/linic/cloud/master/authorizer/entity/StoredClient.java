@@ -0,0 +1,85 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * An OAuth2 registered client. The sets are stored comma separated and the client and token settings are JSON
+ * serialized with the Spring Security Jackson modules.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = StoredClient.CLIENT_ID_UNIQUE_KEY, columnNames = "client_id"))
+@Data
+public class StoredClient implements Persistable<String> {
+	public static final String CLIENT_ID_UNIQUE_KEY = "stored_client_client_id_key";
+	
+	@Id
+	private String id;
+	
+	@Column(nullable = false)
+	private String clientId;
+	
+	private Instant clientIdIssuedAt;
+	
+	private String clientSecret;
+	private Instant clientSecretExpiresAt;
+	
+	@Column(nullable = false)
+	private String clientName;
+	
+	@Column(nullable = false, columnDefinition = "text")
+	private String clientAuthenticationMethods;
+	
+	@Column(nullable = false, columnDefinition = "text")
+	private String authorizationGrantTypes;
+	
+	@Column(columnDefinition = "text")
+	private String redirectUris;
+	
+	@Column(columnDefinition = "text")
+	private String postLogoutRedirectUris;
+	
+	@Column(nullable = false, columnDefinition = "text")
+	private String scopes;
+	
+	@Column(nullable = false, columnDefinition = "text")
+	private String clientSettings;
+	
+	@Column(nullable = false, columnDefinition = "text")
+	private String tokenSettings;
+	
+	/**
+	 * The id is assigned, so Spring Data cannot tell new clients apart by it
+	 */
+	@Transient
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	private boolean persisted;
+	
+	@Override
+	public boolean isNew() {
+		return !persisted;
+	}
+	
+	@PostLoad
+	@PrePersist
+	private void markPersisted() {
+		persisted = true;
+	}
+}
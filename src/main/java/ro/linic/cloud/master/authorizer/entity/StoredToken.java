@@ -0,0 +1,61 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * A token of a {@link StoredAuthorization}: authorization code, access, refresh, OIDC id token, user or device code
+ */
+@Entity
+@Table(indexes = @Index(name = "stored_token_authorization_id_idx", columnList = "authorization_id"))
+@Data
+public class StoredToken {
+	/**
+	 * SHA-256 of the token value, so lookups use a short, fixed size key whatever the token size
+	 */
+	@Id
+	private String valueHash;
+	
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "authorization_id", nullable = false)
+	@OnDelete(action = OnDeleteAction.CASCADE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private StoredAuthorization authorization;
+	
+	/**
+	 * The value of the {@link org.springframework.security.oauth2.server.authorization.OAuth2TokenType} the token is
+	 * looked up with
+	 */
+	@Column(nullable = false)
+	private String tokenType;
+	
+	@Column(nullable = false, columnDefinition = "text")
+	private String tokenValue;
+	
+	private Instant issuedAt;
+	private Instant expiresAt;
+	
+	@Column(columnDefinition = "text")
+	private String metadata;
+	
+	/**
+	 * The scopes of an access token, comma separated
+	 */
+	@Column(columnDefinition = "text")
+	private String scopes;
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
@@ -12,7 +13,8 @@ import lombok.Data;
 @Data
 public class Tenant {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tenant_id_seq")
+	@SequenceGenerator(name = "tenant_id_seq", sequenceName = "tenant_id_seq", allocationSize = 50)
 	private int id;
 	@Column(nullable = false, unique = true)
 	@NotBlank
@@ -0,0 +1,45 @@
+package ro.linic.cloud.master.authorizer.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+/**
+ * Progress of the asynchronous deletion of a tenant. The row is written in the same transaction as each deleted
+ * chunk, so a deletion interrupted by a crash resumes from the phase it was in. It is kept after the tenant is gone,
+ * as the record of the deletion.
+ */
+@Entity
+@Data
+public class TenantDeletion {
+	/**
+	 * The phases, in the order they run
+	 */
+	public enum Phase { INVITE_TOKENS, ROLE_ASSIGNMENTS, ROLES, TENANT, DONE }
+	
+	@Id
+	private int tenantId;
+	
+	@Column(nullable = false)
+	private String tenantName;
+	
+	private String requestedBy;
+	
+	@Column(nullable = false)
+	private Instant requestedAt;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private Phase phase = Phase.INVITE_TOKENS;
+	
+	private long inviteTokensDeleted;
+	private long roleAssignmentsDeleted;
+	private long rolesDeleted;
+	
+	private Instant completedAt;
+}
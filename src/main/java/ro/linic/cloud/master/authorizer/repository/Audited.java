@@ -0,0 +1,22 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import ro.linic.cloud.master.authorizer.component.Auditor;
+
+/**
+ * Opts a Spring Data repository into Javers auditing: entities passed to its <code>save*</code> and
+ * <code>delete*</code> methods are committed to Javers by the {@link Auditor}, synchronously or in
+ * background batches, depending on <code>audit.mode</code>.
+ * <br>
+ * Repositories of high churn entities, whose history is not needed, should not be annotated.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Audited {
+}
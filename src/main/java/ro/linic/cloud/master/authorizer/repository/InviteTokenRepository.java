@@ -1,14 +1,38 @@
 package ro.linic.cloud.master.authorizer.repository;
 
 import java.time.Instant;
-import java.util.List;
 
-import org.javers.spring.annotation.JaversSpringDataAuditable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import ro.linic.cloud.master.authorizer.entity.InviteToken;
 
-@JaversSpringDataAuditable
 public interface InviteTokenRepository extends JpaRepository<InviteToken, String> {
-	List<InviteToken> findAllByExpiryDateBefore(Instant before);
-}
\ No newline at end of file
+	/**
+	 * Deletes at most <code>limit</code> tokens that expired before the given instant, in one statement
+	 * and one short transaction, using the <code>expiry_date</code> index.
+	 * 
+	 * @return the number of deleted tokens
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM invite_token WHERE token IN "
+			+ "(SELECT token FROM invite_token WHERE expiry_date < :before LIMIT :limit)", nativeQuery = true)
+	int deleteExpiredBefore(@Param("before") Instant before, @Param("limit") int limit);
+	
+	/**
+	 * Deletes at most <code>limit</code> tokens of the tenant, using the <code>tenant_id</code> index
+	 * 
+	 * @return the number of deleted tokens
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM invite_token WHERE token IN "
+			+ "(SELECT token FROM invite_token WHERE tenant_id = :tenantId LIMIT :limit)", nativeQuery = true)
+	int deleteAllOfTenant(@Param("tenantId") int tenantId, @Param("limit") int limit);
+	
+	boolean existsByTenant_Id(int tenantId);
+}
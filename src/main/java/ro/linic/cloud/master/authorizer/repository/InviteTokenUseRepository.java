@@ -0,0 +1,29 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import ro.linic.cloud.master.authorizer.entity.InviteTokenUse;
+
+public interface InviteTokenUseRepository extends JpaRepository<InviteTokenUse, String> {
+	/**
+	 * @return 1 if the token was not used before, 0 if it was
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO invite_token_use (id, expiry_date) VALUES (:id, :expiryDate) ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+	int markUsed(@Param("id") String id, @Param("expiryDate") Instant expiryDate);
+	
+	/**
+	 * @see InviteTokenRepository#deleteExpiredBefore(Instant, int)
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM invite_token_use WHERE id IN "
+			+ "(SELECT id FROM invite_token_use WHERE expiry_date < :before LIMIT :limit)", nativeQuery = true)
+	int deleteExpiredBefore(@Param("before") Instant before, @Param("limit") int limit);
+}
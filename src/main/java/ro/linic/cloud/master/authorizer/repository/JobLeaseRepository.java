@@ -0,0 +1,29 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import ro.linic.cloud.master.authorizer.entity.JobLease;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+	/**
+	 * Takes the lease if it is free, expired or already held by the owner, extending it by <code>seconds</code>.
+	 * The upsert is atomic, so concurrent nodes cannot both take the same lease.
+	 * 
+	 * @return 1 if the lease was acquired, 0 if another owner holds it
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO job_lease (name, owner, locked_until) VALUES (:name, :owner, now() + make_interval(secs => :seconds)) "
+			+ "ON CONFLICT (name) DO UPDATE SET owner = excluded.owner, locked_until = excluded.locked_until "
+			+ "WHERE job_lease.locked_until < now() OR job_lease.owner = excluded.owner", nativeQuery = true)
+	int acquire(@Param("name") String name, @Param("owner") String owner, @Param("seconds") long seconds);
+	
+	@Transactional
+	@Modifying
+	@Query(value = "UPDATE job_lease SET locked_until = now() WHERE name = :name AND owner = :owner", nativeQuery = true)
+	int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -1,19 +1,106 @@
 package ro.linic.cloud.master.authorizer.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-import org.javers.spring.annotation.JaversSpringDataAuditable;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 import ro.linic.cloud.master.authorizer.entity.MultiUser;
-import ro.linic.cloud.master.authorizer.entity.Role;
 
-@JaversSpringDataAuditable
+@Audited
 public interface MultiUserRepository extends JpaRepository<MultiUser, Integer> {
-	@Query(value = "SELECT * FROM multi_user WHERE principals @> to_jsonb(:principal) LIMIT 1", nativeQuery = true)
+	@Query("SELECT u FROM MultiUser u JOIN u.principals p WHERE p = :principal")
 	Optional<MultiUser> findByPrincipal(@Param("principal") String principal);
-	List<MultiUser> findAllByRolesContains(Role role);
+	
+	/**
+	 * Resolves the principal in one round trip: as a user id first, then as an external principal name.
+	 * The query spaces make Hibernate flush pending user inserts before running the query.
+	 */
+	@QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "multi_user"),
+		@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_principal")})
+	@Query(value = "SELECT COALESCE((SELECT mu.id FROM multi_user mu WHERE mu.id = :id), "
+			+ "(SELECT up.multi_user_id FROM user_principal up WHERE up.principal = :principal))", nativeQuery = true)
+	Optional<Integer> findUserIdByIdOrPrincipal(@Param("id") int id, @Param("principal") String principal);
+	
+	/**
+	 * Takes the role away from all its users in one statement, without loading them. Pending changes are flushed
+	 * before and the persistence context is cleared after, so no stale role collections are left behind.
+	 * Not audited per user, see {@link ro.linic.cloud.master.authorizer.component.Auditor#commitProperty(String, String)}.
+	 * 
+	 * @return the number of users that had the role
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "DELETE FROM multi_user_role WHERE role_id = :roleId", nativeQuery = true)
+	int removeRoleFromAllUsers(@Param("roleId") long roleId);
+	
+	/**
+	 * Takes at most <code>limit</code> roles of the tenant away from their users, in one statement.
+	 * Not audited per user, like {@link #removeRoleFromAllUsers(long)}.
+	 * 
+	 * @return the number of removed role assignments
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM multi_user_role WHERE (multi_user_id, role_id) IN "
+			+ "(SELECT mur.multi_user_id, mur.role_id FROM multi_user_role mur JOIN role r ON r.id = mur.role_id "
+			+ "WHERE r.tenant_id = :tenantId LIMIT :limit)", nativeQuery = true)
+	int removeRolesOfTenantFromUsers(@Param("tenantId") int tenantId, @Param("limit") int limit);
+	
+	/**
+	 * Replaces the password hash of the user, unless the password was changed meanwhile.
+	 * Not audited, the password stays the same.
+	 * 
+	 * @return 1 if the hash was replaced
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE MultiUser u SET u.password = :newPassword WHERE u.id = :id AND u.password = :oldPassword")
+	int upgradePassword(@Param("id") int id, @Param("oldPassword") String oldPassword, @Param("newPassword") String newPassword);
+	
+	@Query("SELECT u.id FROM MultiUser u WHERE u.id IN :ids")
+	List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+	
+	@Query("SELECT p AS principal, u.id AS userId FROM MultiUser u JOIN u.principals p WHERE p IN :principals")
+	List<PrincipalUserId> findUserIdsByPrincipals(@Param("principals") Collection<String> principals);
+	
+	/**
+	 * @return the OR'ed authority mask of the tenant and global roles of the user; 0 if none, or if the deletion
+	 * of the tenant was requested
+	 */
+	@Query(value = "SELECT COALESCE(bit_or(r.authority_mask), 0) "
+			+ "FROM multi_user_role mur JOIN role r ON r.id = mur.role_id "
+			+ "WHERE mur.multi_user_id = :userId AND (r.tenant_id IS NULL OR r.tenant_id = :tenantId) "
+			+ "AND NOT EXISTS (SELECT 1 FROM tenant_deletion d WHERE d.tenant_id = :tenantId)", nativeQuery = true)
+	long findAuthorityMask(@Param("userId") int userId, @Param("tenantId") int tenantId);
+	
+	/**
+	 * @return for each user, the OR'ed authority mask of its roles grouped by tenant;
+	 * global roles are returned with a null tenantId
+	 */
+	@Query(value = "SELECT mur.multi_user_id AS \"userId\", r.tenant_id AS \"tenantId\", bit_or(r.authority_mask) AS \"authorityMask\" "
+			+ "FROM multi_user_role mur JOIN role r ON r.id = mur.role_id "
+			+ "WHERE mur.multi_user_id IN (:userIds) AND (r.tenant_id IS NULL OR r.tenant_id IN (:tenantIds)) "
+			+ "GROUP BY mur.multi_user_id, r.tenant_id", nativeQuery = true)
+	List<UserTenantAuthorityMask> findAuthorityMasks(@Param("userIds") Collection<Integer> userIds,
+			@Param("tenantIds") Collection<Integer> tenantIds);
+	
+	interface PrincipalUserId {
+		String getPrincipal();
+		Integer getUserId();
+	}
+	
+	interface UserTenantAuthorityMask {
+		Integer getUserId();
+		Integer getTenantId();
+		Long getAuthorityMask();
+	}
 }
\ No newline at end of file
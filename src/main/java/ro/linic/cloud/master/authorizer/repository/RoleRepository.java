@@ -1,13 +1,41 @@
 package ro.linic.cloud.master.authorizer.repository;
 
-import java.util.List;
-
-import org.javers.spring.annotation.JaversSpringDataAuditable;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
 import ro.linic.cloud.master.authorizer.entity.Role;
 
-@JaversSpringDataAuditable
+@Audited
 public interface RoleRepository extends JpaRepository<Role, Long> {
-	List<Role> findByName(String name);
-}
\ No newline at end of file
+	/**
+	 * Probes the {@link Role#NAME_UNIQUE_INDEX} index and stops at the first match; matches names ignoring case,
+	 * like the index does
+	 * 
+	 * @param excludedRoleId the role being renamed, or 0 for a new role
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "role"))
+	@Query(value = "SELECT EXISTS (SELECT 1 FROM role r WHERE r.tenant_id = :tenantId AND lower(r.name) = lower(:name) "
+			+ "AND r.id <> :excludedRoleId)", nativeQuery = true)
+	boolean existsInTenantByName(@Param("tenantId") int tenantId, @Param("name") String name,
+			@Param("excludedRoleId") long excludedRoleId);
+	
+	boolean existsByTenant_Id(int tenantId);
+	
+	/**
+	 * Deletes at most <code>limit</code> roles of the tenant that are not assigned to any user, in one statement.
+	 * Not audited per role, see {@link ro.linic.cloud.master.authorizer.component.Auditor#commitProperty(String, String)}.
+	 * 
+	 * @return the number of deleted roles
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM role WHERE id IN (SELECT r.id FROM role r WHERE r.tenant_id = :tenantId "
+			+ "AND NOT EXISTS (SELECT 1 FROM multi_user_role mur WHERE mur.role_id = r.id) LIMIT :limit)", nativeQuery = true)
+	int removeUnassignedOfTenant(@Param("tenantId") int tenantId, @Param("limit") int limit);
+}
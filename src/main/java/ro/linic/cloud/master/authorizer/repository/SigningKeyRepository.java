@@ -0,0 +1,21 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import ro.linic.cloud.master.authorizer.entity.SigningKey;
+
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+	List<SigningKey> findAllByPublishedUntilAfterOrderBySigningFrom(Instant now);
+	
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM SigningKey k WHERE k.publishedUntil <= :now")
+	int deleteUnpublished(@Param("now") Instant now);
+}
@@ -0,0 +1,40 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import ro.linic.cloud.master.authorizer.entity.StoredAuthorization;
+
+public interface StoredAuthorizationRepository extends JpaRepository<StoredAuthorization, String> {
+	@EntityGraph(attributePaths = "tokens")
+	Optional<StoredAuthorization> findWithTokensById(String id);
+	
+	@EntityGraph(attributePaths = "tokens")
+	Optional<StoredAuthorization> findFirstByStateHash(String stateHash);
+	
+	/**
+	 * Finds the authorization holding the token by the primary key of the token
+	 */
+	@Query("SELECT a FROM StoredAuthorization a LEFT JOIN FETCH a.tokens "
+			+ "WHERE a.id = (SELECT t.authorization.id FROM StoredToken t WHERE t.valueHash = :valueHash)")
+	Optional<StoredAuthorization> findByTokenHash(@Param("valueHash") String valueHash);
+	
+	/**
+	 * Deletes at most <code>limit</code> authorizations whose tokens all expired before <code>before</code>,
+	 * together with their tokens
+	 * 
+	 * @return the number of deleted authorizations
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "DELETE FROM stored_authorization WHERE id IN "
+			+ "(SELECT id FROM stored_authorization WHERE expires_at < :before LIMIT :limit)", nativeQuery = true)
+	int deleteExpiredBefore(@Param("before") Instant before, @Param("limit") int limit);
+}
@@ -0,0 +1,12 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import ro.linic.cloud.master.authorizer.entity.StoredClient;
+
+public interface StoredClientRepository extends JpaRepository<StoredClient, String> {
+	Optional<StoredClient> findByClientId(String clientId);
+	boolean existsByClientId(String clientId);
+}
@@ -0,0 +1,21 @@
+package ro.linic.cloud.master.authorizer.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion.Phase;
+
+public interface TenantDeletionRepository extends JpaRepository<TenantDeletion, Integer> {
+	List<TenantDeletion> findAllByPhaseNotOrderByRequestedAt(Phase phase);
+	
+	/**
+	 * @return the ids among <code>tenantIds</code> of the tenants whose deletion was requested
+	 */
+	@Query("SELECT d.tenantId FROM TenantDeletion d WHERE d.tenantId IN :tenantIds")
+	List<Integer> findDeletingTenantIds(@Param("tenantIds") Collection<Integer> tenantIds);
+}
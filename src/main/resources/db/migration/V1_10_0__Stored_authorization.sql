@@ -0,0 +1,7 @@
+create table stored_authorization (id varchar(255) not null, registered_client_id varchar(255) not null, principal_name varchar(255) not null, authorization_grant_type varchar(255) not null, authorized_scopes text, attributes text, state_hash varchar(255), expires_at timestamp(6) with time zone not null, primary key (id));
+create table stored_token (value_hash varchar(255) not null, authorization_id varchar(255) not null, token_type varchar(255) not null, token_value text not null, issued_at timestamp(6) with time zone, expires_at timestamp(6) with time zone, metadata text, scopes text, primary key (value_hash));
+
+create index stored_authorization_state_hash_idx on stored_authorization (state_hash);
+create index stored_authorization_expires_at_idx on stored_authorization (expires_at);
+create index stored_token_authorization_id_idx on stored_token (authorization_id);
+alter table if exists stored_token add constraint stored_token_authorization_fk foreign key (authorization_id) references stored_authorization on delete cascade;
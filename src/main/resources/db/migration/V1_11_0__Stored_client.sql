@@ -0,0 +1,3 @@
+create table stored_client (id varchar(255) not null, client_id varchar(255) not null, client_id_issued_at timestamp(6) with time zone, client_secret varchar(255), client_secret_expires_at timestamp(6) with time zone, client_name varchar(255) not null, client_authentication_methods text not null, authorization_grant_types text not null, redirect_uris text, post_logout_redirect_uris text, scopes text not null, client_settings text not null, token_settings text not null, primary key (id));
+
+alter table if exists stored_client add constraint stored_client_client_id_key unique (client_id);
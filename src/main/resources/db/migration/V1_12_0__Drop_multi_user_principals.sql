@@ -0,0 +1,2 @@
+-- the principals were copied to user_principal by V1_2_0; the old column was kept until the copy was verified
+alter table multi_user drop column principals;
@@ -0,0 +1,16 @@
+-- Bitmask encoding of role.authorities: bit n is the Authority enum constant with ordinal n
+alter table role add column authority_mask bigint default 0 not null;
+
+update role r set authority_mask = coalesce((select bit_or(case a.name
+		when 'MODIFY_TENANT' then 1::bigint
+		when 'VIEW_USERS' then 2::bigint
+		when 'CREATE_USERS' then 4::bigint
+		when 'DELETE_USERS' then 8::bigint
+		when 'VIEW_ROLES' then 16::bigint
+		when 'CREATE_ROLES' then 32::bigint
+		when 'MODIFY_ROLES' then 64::bigint
+		when 'DELETE_ROLES' then 128::bigint
+		when 'MODIFY_USER_ROLES' then 256::bigint
+		when 'CREATE_TENANTS' then 512::bigint
+		else 0::bigint end)
+	from jsonb_array_elements_text(r.authorities) as a(name)), 0);
@@ -0,0 +1,9 @@
+create table user_principal (principal varchar(255) not null, multi_user_id integer not null, primary key (principal));
+create index user_principal_multi_user_id_idx on user_principal (multi_user_id);
+alter table if exists user_principal add constraint user_principal_multi_user_fk foreign key (multi_user_id) references multi_user on delete cascade;
+
+-- a principal could be stored on more than one user, as only the whole array was unique; the oldest user keeps it
+insert into user_principal (principal, multi_user_id)
+select distinct on (p.principal) p.principal, mu.id
+from multi_user mu cross join jsonb_array_elements_text(mu.principals) as p(principal)
+order by p.principal, mu.id;
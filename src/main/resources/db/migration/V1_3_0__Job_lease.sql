@@ -0,0 +1,3 @@
+create index invite_token_expiry_date_idx on invite_token (expiry_date);
+
+create table job_lease (name varchar(255) not null, owner varchar(255) not null, locked_until timestamp(6) with time zone not null, primary key (name));
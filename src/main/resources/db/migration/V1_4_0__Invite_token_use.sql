@@ -0,0 +1,2 @@
+create table invite_token_use (id varchar(255) not null, expiry_date timestamp(6) with time zone not null, primary key (id));
+create index invite_token_use_expiry_date_idx on invite_token_use (expiry_date);
@@ -0,0 +1,10 @@
+-- ids are allocated by Hibernate in blocks of 50(pooled optimizer), so inserts can be batched;
+-- the sequence increment must match the allocationSize of the entities.
+-- Existing ids are kept; the sequences are first moved past them(the initial data was inserted with explicit ids).
+select setval('tenant_id_seq', greatest((select coalesce(max(id), 0) from tenant), (select last_value from tenant_id_seq), 1));
+select setval('role_id_seq', greatest((select coalesce(max(id), 0) from role), (select last_value from role_id_seq), 1));
+select setval('multi_user_id_seq', greatest((select coalesce(max(id), 0) from multi_user), (select last_value from multi_user_id_seq), 1));
+
+alter sequence tenant_id_seq increment by 50;
+alter sequence role_id_seq increment by 50;
+alter sequence multi_user_id_seq increment by 50;
@@ -0,0 +1 @@
+create index multi_user_role_role_id_idx on multi_user_role (role_id);
@@ -0,0 +1,5 @@
+-- role names used to be unique across all tenants, but only case sensitively; suffix the case insensitive duplicates with their id
+update role set name = name || ' ' || id where id in
+	(select id from (select id, row_number() over (partition by tenant_id, lower(name) order by id) as rn from role) as duplicates where rn > 1);
+
+create unique index role_tenant_id_lower_name_key on role (tenant_id, lower(name));
@@ -0,0 +1,3 @@
+create table tenant_deletion (tenant_id integer not null, tenant_name varchar(255) not null, requested_by varchar(255), requested_at timestamp(6) with time zone not null, phase varchar(255) not null, invite_tokens_deleted bigint not null, role_assignments_deleted bigint not null, roles_deleted bigint not null, completed_at timestamp(6) with time zone, primary key (tenant_id));
+
+create index invite_token_tenant_id_idx on invite_token (tenant_id);
@@ -0,0 +1 @@
+create table signing_key (kid varchar(255) not null, algorithm varchar(255) not null, jwk text not null, signing_from timestamp(6) with time zone not null, signing_until timestamp(6) with time zone not null, published_until timestamp(6) with time zone not null, primary key (kid));
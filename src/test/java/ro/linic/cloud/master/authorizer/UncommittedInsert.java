@@ -0,0 +1,71 @@
+package ro.linic.cloud.master.authorizer;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs an insert in a transaction of its own, on another thread, and keeps it uncommitted until another session
+ * waits for it. A request performed meanwhile cannot see the row, so it passes its existence check and then blocks
+ * on the unique key; once the insert commits, the request fails on the key instead of on the check.
+ */
+public class UncommittedInsert {
+	private static final long TIMEOUT_MILLIS = 10000;
+	
+	private final CountDownLatch inserted = new CountDownLatch(1);
+	private final Thread thread;
+	private volatile boolean waitedFor;
+	
+	private UncommittedInsert(final TransactionTemplate transactionTemplate, final JdbcTemplate jdbcTemplate, final Runnable insert) {
+		thread = new Thread(() -> transactionTemplate.executeWithoutResult(status ->
+		{
+			try {
+				insert.run();
+			} finally {
+				inserted.countDown();
+			}
+			waitedFor = awaitWaitingSession(jdbcTemplate);
+			// committing after the request gave up waiting would let its existence check see the row
+			if (!waitedFor)
+				status.setRollbackOnly();
+		}));
+	}
+	
+	/**
+	 * @param insert must flush, so the row holds the key before this returns
+	 */
+	public static UncommittedInsert start(final TransactionTemplate transactionTemplate, final JdbcTemplate jdbcTemplate,
+			final Runnable insert) throws InterruptedException {
+		final UncommittedInsert uncommittedInsert = new UncommittedInsert(transactionTemplate, jdbcTemplate, insert);
+		uncommittedInsert.thread.start();
+		uncommittedInsert.inserted.await();
+		return uncommittedInsert;
+	}
+	
+	/**
+	 * @return whether another session waited for the insert before it committed; otherwise it was rolled back
+	 */
+	public boolean join() throws InterruptedException {
+		thread.join();
+		return waitedFor;
+	}
+	
+	private static boolean awaitWaitingSession(final JdbcTemplate jdbcTemplate) {
+		final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (System.currentTimeMillis() < deadline) {
+			// runs on the connection of the insert, which sees the locks of every session
+			if (jdbcTemplate.queryForObject("SELECT EXISTS(SELECT 1 FROM pg_locks WHERE locktype = 'transactionid' "
+					+ "AND NOT granted AND pid <> pg_backend_pid())", Boolean.class))
+				return true;
+			
+			try {
+				Thread.sleep(50);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,133 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.javers.core.Javers;
+import org.javers.core.metamodel.object.CdoSnapshot;
+import org.javers.repository.jql.QueryBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ro.linic.cloud.master.authorizer.component.Auditor.AuditEvent;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest(properties = "audit.mode=async")
+@ContextConfiguration(initializers = {AuditorIntegrationTest.Initializer.class})
+@Testcontainers
+public class AuditorIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private Javers javers;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private AsyncAuditWriter asyncAuditWriter;
+	
+	@Test
+	public void givenAsyncMode_whenTenantSavedAndDeleted_thenSnapshotsWrittenInBackground() throws Exception {
+		final Tenant tenant = new Tenant();
+		tenant.setName("Audited tenant");
+		final int tenantId = tenantRepo.save(tenant).getId();
+		
+		assertThat(awaitSnapshots(tenantId, 1)).hasSize(1);
+		
+		tenantRepo.deleteById(tenantId);
+		assertThat(awaitSnapshots(tenantId, 2).get(0).isTerminal()).isTrue();
+	}
+	
+	@Test
+	public void givenAsyncMode_whenTransactionRolledBack_thenNotAudited() throws Exception {
+		final int tenantId = transactionTemplate.execute(status ->
+		{
+			final Tenant tenant = new Tenant();
+			tenant.setName("Rolled back tenant");
+			final int id = tenantRepo.save(tenant).getId();
+			status.setRollbackOnly();
+			return id;
+		});
+		
+		assertThat(awaitSnapshots(tenantId, 1)).isEmpty();
+	}
+	
+	@Test
+	public void givenAsyncMode_whenEntityChangedInSeveralTransactions_thenEveryStateAudited() throws Exception {
+		final double written = writtenEvents();
+		final Tenant tenant = new Tenant();
+		tenant.setName("First name");
+		final Tenant saved = tenantRepo.save(tenant);
+		saved.setName("Second name");
+		tenantRepo.save(saved);
+		saved.setName("Third name");
+		tenantRepo.save(saved);
+		
+		for (int i = 0; i < 20 && writtenEvents() < written + 3; i++)
+			Thread.sleep(100);
+		final List<CdoSnapshot> snapshots = javers.findSnapshots(QueryBuilder.byInstanceId(saved.getId(), Tenant.class).build());
+		assertThat(snapshots).extracting(snapshot -> snapshot.getPropertyValue("name"))
+				.containsExactly("Third name", "Second name", "First name");
+	}
+	
+	@Test
+	public void givenFailingEventInBatch_whenWritten_thenOtherEventsStillWritten() {
+		final double failed = meterRegistry.get("audit.events").tag("result", "failed").counter().count();
+		final List<AuditEvent> batch = List.of(
+				new AuditEvent("test", Tenant.class, 1000001, tenant(1000001, "Before failing"), false, Map.of()),
+				// Javers refuses to commit values, so this event fails even on its own
+				new AuditEvent("test", String.class, "failing", "failing", false, Map.of()),
+				new AuditEvent("test", Tenant.class, 1000002, tenant(1000002, "After failing"), false, Map.of()));
+		
+		ReflectionTestUtils.invokeMethod(asyncAuditWriter, "write", batch);
+		
+		assertThat(javers.findSnapshots(QueryBuilder.byInstanceId(1000001, Tenant.class).build())).hasSize(1);
+		assertThat(javers.findSnapshots(QueryBuilder.byInstanceId(1000002, Tenant.class).build())).hasSize(1);
+		assertThat(meterRegistry.get("audit.events").tag("result", "failed").counter().count()).isEqualTo(failed + 1);
+	}
+	
+	private static Tenant tenant(final int id, final String name) {
+		final Tenant tenant = new Tenant();
+		tenant.setId(id);
+		tenant.setName(name);
+		return tenant;
+	}
+	
+	private List<CdoSnapshot> awaitSnapshots(final int tenantId, final int expected) throws InterruptedException {
+		List<CdoSnapshot> snapshots = List.of();
+		for (int i = 0; i < 20 && snapshots.size() < expected; i++) {
+			Thread.sleep(100);
+			snapshots = javers.findSnapshots(QueryBuilder.byInstanceId(tenantId, Tenant.class).build());
+		}
+		return snapshots;
+	}
+	
+	private double writtenEvents() {
+		return meterRegistry.get("audit.events").tag("result", "written").counter().count();
+	}
+}
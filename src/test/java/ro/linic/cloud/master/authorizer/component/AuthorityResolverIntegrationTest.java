@@ -0,0 +1,109 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.dto.PrincipalTenantDTO;
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantDeletionRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest
+@ContextConfiguration(initializers = {AuthorityResolverIntegrationTest.Initializer.class})
+@Testcontainers
+public class AuthorityResolverIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private AuthorityResolver authorityResolver;
+	@Autowired private TenantDeleter tenantDeleter;
+	@Autowired private TenantDeletionRepository deletionRepo;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private PlatformTransactionManager transactionManager;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		transactionTemplate.executeWithoutResult(status -> TestData.saveData());
+	}
+	
+	@AfterEach
+	public void cleanup() {
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			deletionRepo.deleteAll();
+			TestData.deleteAllData();
+		});
+	}
+	
+	@Test
+	public void givenReadBeforeConcurrentChange_whenReadCommits_thenOldAuthoritiesNotCached() {
+		final int userId = TestData.defaultUser.getId();
+		final int tenantId = TestData.defaultTenant.getId();
+		final TransactionTemplate concurrentTransaction = new TransactionTemplate(transactionManager);
+		concurrentTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			assertThat(authorityResolver.authorities(userId, tenantId)).isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES);
+			concurrentTransaction.executeWithoutResult(concurrentStatus ->
+			{
+				jdbcTemplate.update("UPDATE role SET authority_mask = 0 WHERE id = ?", TestData.defaultRole.getId());
+				authorityResolver.evictTenant(tenantId);
+			});
+		});
+		
+		assertThat(authorityResolver.authorities(userId, tenantId).isEmpty()).isTrue();
+	}
+	
+	@Test
+	public void givenAuthoritiesCached_whenTenantDeletionRequested_thenNoAuthorities() {
+		final int userId = TestData.defaultUser.getId();
+		final int tenantId = TestData.defaultTenant.getId();
+		assertThat(authorityResolver.authorities(userId, tenantId)).isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES);
+		
+		transactionTemplate.executeWithoutResult(status ->
+				tenantDeleter.request(tenantRepo.findById(tenantId).get(), "test"));
+		
+		assertThat(authorityResolver.authorities(userId, tenantId).isEmpty()).isTrue();
+		assertThat(authorityResolver.authorities(List.of(new PrincipalTenantDTO(String.valueOf(userId), tenantId))).get(0).getAuthorities())
+				.isEmpty();
+	}
+}
@@ -0,0 +1,92 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.c4_soft.springaddons.security.oauth2.test.annotations.WithOAuth2Login;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.common.I18n;
+
+/**
+ * The admin bulkhead has no free slots, so every admin request is rejected
+ */
+@SpringBootTest(properties = {"bulkhead.admin.max-concurrent-calls=0", "bulkhead.admin.max-wait=PT0S"})
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = {BulkheadIntegrationTest.Initializer.class})
+@Testcontainers
+public class BulkheadIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private MockMvc mockMvc;
+	@Autowired private I18n i18n;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private RequestMappingHandlerMapping requestMappingHandlerMapping;
+	@Autowired private BulkheadInterceptor bulkheadInterceptor;
+	@Autowired private TenantWriteGuard tenantWriteGuard;
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenAdminBulkheadFull_whenCreateTenant_thenServiceUnavailable() throws Exception {
+		mockMvc.perform(post("/tenant").content("Bulkhead tenant"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(status().reason(i18n.msg(Messages.BulkheadFull)));
+		
+		assertThat(meterRegistry.get("bulkhead.calls.rejected").tag("workload", "admin").counter().count()).isEqualTo(1);
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "SCOPE_authorities.read")
+	public void givenAdminBulkheadFull_whenUserAuthorities_thenServedFromAuthoritiesPool() throws Exception {
+		mockMvc.perform(get("/user/1/authorities").header("X-TenantID", 1))
+				.andExpect(status().isOk());
+		
+		assertThat(meterRegistry.get("hikaricp.connections.usage").tag("pool", "authorities").timer().count()).isPositive();
+		assertThat(meterRegistry.get("bulkhead.calls.active").tag("workload", "authorities").gauge().value()).isZero();
+	}
+	
+	@Test
+	public void givenTenantWrite_whenHandlerResolved_thenBulkheadRunsBeforeWriteGuard() throws Exception {
+		final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/role");
+		request.addHeader("X-TenantID", 1);
+		
+		final List<HandlerInterceptor> interceptors = requestMappingHandlerMapping.getHandler(request).getInterceptorList();
+		
+		assertThat(interceptors).contains(bulkheadInterceptor, tenantWriteGuard);
+		assertThat(interceptors.indexOf(bulkheadInterceptor)).isLessThan(interceptors.indexOf(tenantWriteGuard));
+	}
+}
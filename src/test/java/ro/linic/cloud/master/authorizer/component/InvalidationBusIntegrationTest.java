@@ -0,0 +1,178 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest(properties = "invalidation.reconnect-delay=PT0.2S")
+@ContextConfiguration(initializers = {InvalidationBusIntegrationTest.Initializer.class})
+@Testcontainers
+public class InvalidationBusIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private InvalidationBus invalidationBus;
+	@Autowired private AuthorityResolver authorityResolver;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		transactionTemplate.executeWithoutResult(status -> TestData.saveData());
+	}
+	
+	@AfterEach
+	public void cleanup() {
+		transactionTemplate.executeWithoutResult(status -> TestData.deleteAllData());
+	}
+	
+	@Test
+	public void givenEventFromOtherNode_whenReceived_thenEvictCachedEntries() throws Exception {
+		final int userId = TestData.defaultUser.getId();
+		final int tenantId = TestData.defaultTenant.getId();
+		assertThat(authorityResolver.authorities(userId, tenantId)).isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES);
+		
+		// changed by another node, which evicted only its own cache
+		jdbcTemplate.update("UPDATE role SET authority_mask = 0 WHERE id = ?", TestData.defaultRole.getId());
+		assertThat(authorityResolver.authorities(userId, tenantId)).isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES);
+		
+		jdbcTemplate.execute("SELECT pg_notify('" + InvalidationBus.CHANNEL + "', 'other-node\nauthorities.tenant:" + tenantId + "')");
+		await(() -> authorityResolver.authorities(userId, tenantId).isEmpty());
+	}
+	
+	@Test
+	public void givenBurstOfEvents_whenPublished_thenCoalescedInOneNotification() throws Exception {
+		try (Connection connection = DriverManager.getConnection(postgresContainer.getJdbcUrl(),
+				postgresContainer.getUsername(), postgresContainer.getPassword())) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("LISTEN " + InvalidationBus.CHANNEL);
+			}
+			
+			for (int i = 0; i < 3; i++) {
+				invalidationBus.publish("test", "a");
+				invalidationBus.publish("test", "b");
+			}
+			
+			// other events, such as those of the test data, may share the notification
+			final List<String> testEvents = new ArrayList<>();
+			final long deadline = System.currentTimeMillis() + 5000;
+			while (testEvents.isEmpty() && System.currentTimeMillis() < deadline) {
+				final PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(500);
+				if (notifications != null)
+					for (final PGNotification notification : notifications)
+						for (final String event : notification.getParameter().split("\n"))
+							if (event.startsWith("test:"))
+								testEvents.add(event);
+			}
+			
+			assertThat(testEvents).containsExactly("test:a", "test:b");
+		}
+	}
+	
+	@Test
+	public void givenListenerDisconnected_whenReconnected_thenFlushAll() throws Exception {
+		final int userId = TestData.defaultUser.getId();
+		final int tenantId = TestData.defaultTenant.getId();
+		assertThat(authorityResolver.authorities(userId, tenantId)).isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES);
+		jdbcTemplate.update("UPDATE role SET authority_mask = 0 WHERE id = ?", TestData.defaultRole.getId());
+		final double flushes = meterRegistry.get("invalidation.flushes").counter().count();
+		
+		jdbcTemplate.execute("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE application_name = '"
+				+ InvalidationBus.LISTENER_NAME + "'");
+		
+		await(() -> meterRegistry.get("invalidation.flushes").counter().count() > flushes);
+		assertThat(authorityResolver.authorities(userId, tenantId).isEmpty()).isTrue();
+	}
+	
+	@Test
+	public void givenSendFailed_whenSendingRecovers_thenFlushOtherNodes() throws Exception {
+		try (Connection connection = DriverManager.getConnection(postgresContainer.getJdbcUrl(),
+				postgresContainer.getUsername(), postgresContainer.getPassword())) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("LISTEN " + InvalidationBus.CHANNEL);
+			}
+			
+			// Postgres rejects the oversized payload, so the event is lost
+			invalidationBus.publish("test", "x".repeat(8000));
+			
+			boolean flushed = false;
+			final long deadline = System.currentTimeMillis() + 5000;
+			while (!flushed && System.currentTimeMillis() < deadline) {
+				final PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(500);
+				if (notifications != null)
+					for (final PGNotification notification : notifications)
+						flushed |= List.of(notification.getParameter().split("\n")).contains(InvalidationBus.FLUSH);
+			}
+			
+			assertThat(flushed).isTrue();
+		}
+	}
+	
+	@Test
+	public void givenMalformedEvent_whenReceived_thenFlushAllAndKeepListening() throws Exception {
+		final int userId = TestData.defaultUser.getId();
+		final int tenantId = TestData.defaultTenant.getId();
+		final double flushes = meterRegistry.get("invalidation.flushes").counter().count();
+		
+		jdbcTemplate.execute("SELECT pg_notify('" + InvalidationBus.CHANNEL + "', 'other-node\nauthorities.tenant:not-a-number')");
+		await(() -> meterRegistry.get("invalidation.flushes").counter().count() > flushes);
+		
+		assertThat(authorityResolver.authorities(userId, tenantId)).isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES);
+		jdbcTemplate.update("UPDATE role SET authority_mask = 0 WHERE id = ?", TestData.defaultRole.getId());
+		jdbcTemplate.execute("SELECT pg_notify('" + InvalidationBus.CHANNEL + "', 'other-node\nauthorities.tenant:" + tenantId + "')");
+		await(() -> authorityResolver.authorities(userId, tenantId).isEmpty());
+	}
+	
+	private static void await(final BooleanSupplier condition) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+			Thread.sleep(50);
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+}
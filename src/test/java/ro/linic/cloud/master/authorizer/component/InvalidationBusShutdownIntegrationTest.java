@@ -0,0 +1,75 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * The coalesce window outlasts the test, so published events are still queued when the bus stops
+ */
+@SpringBootTest(properties = "invalidation.coalesce-window=PT1M")
+@ContextConfiguration(initializers = {InvalidationBusShutdownIntegrationTest.Initializer.class})
+@DirtiesContext
+@Testcontainers
+public class InvalidationBusShutdownIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private InvalidationBus invalidationBus;
+	@Autowired private ConfigurableApplicationContext context;
+	
+	@Test
+	public void givenPendingEvents_whenShutdown_thenSent() throws Exception {
+		try (Connection connection = DriverManager.getConnection(postgresContainer.getJdbcUrl(),
+				postgresContainer.getUsername(), postgresContainer.getPassword())) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("LISTEN " + InvalidationBus.CHANNEL);
+			}
+			
+			invalidationBus.publish("test", "a");
+			invalidationBus.publish("test", "b");
+			// runs its @PreDestroy, like on shutdown
+			context.getAutowireCapableBeanFactory().destroyBean(invalidationBus);
+			
+			final List<String> testEvents = new ArrayList<>();
+			final PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(5000);
+			if (notifications != null)
+				for (final PGNotification notification : notifications)
+					for (final String event : notification.getParameter().split("\n"))
+						if (event.startsWith("test:"))
+							testEvents.add(event);
+			
+			assertThat(testEvents).containsExactly("test:a", "test:b");
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.entity.InviteToken;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest(properties = {"invite.token-mode=signed", "invite.signing-key=c2lnbmluZy1rZXktZm9yLWludml0ZS10b2tlbnMtdGVzdHM="})
+@ContextConfiguration(initializers = {InviteTokenManagerIntegrationTest.Initializer.class})
+@Testcontainers
+@Transactional
+public class InviteTokenManagerIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private InviteTokenManager inviteTokenManager;
+	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		TestData.saveData();
+	}
+	
+	@Test
+	public void givenSignedMode_whenIssue_thenTokenCarriesInviteWithoutStoring() {
+		final String token = inviteTokenManager.issue(TestData.defaultTenant, Set.of(TestData.defaultRole.getId()));
+		
+		final InviteToken invite = inviteTokenManager.find(token).get();
+		assertThat(invite.getToken()).isEqualTo(token);
+		assertThat(invite.getTenant().getId()).isEqualTo(TestData.defaultTenant.getId());
+		assertThat(invite.getTenant().getName()).isEqualTo(TestData.defaultTenant.getName());
+		assertThat(invite.getRoles()).containsExactly(TestData.defaultRole.getId());
+		assertThat(invite.isExpired()).isFalse();
+		assertThat(tokenRepo.count()).isZero();
+	}
+	
+	@Test
+	public void givenSignedMode_whenTokenTampered_thenNotFound() {
+		final String token = inviteTokenManager.issue(TestData.defaultTenant, Set.of(TestData.defaultRole.getId()));
+		final String otherToken = inviteTokenManager.issue(TestData.defaultTenant, Set.of(TestData.superadminRole.getId()));
+		
+		final String otherPayloadWithSignature = otherToken.substring(0, otherToken.indexOf('.')) + token.substring(token.indexOf('.'));
+		assertThat(inviteTokenManager.find(otherPayloadWithSignature)).isEmpty();
+		assertThat(inviteTokenManager.find("token")).isEmpty();
+	}
+	
+	@Test
+	public void givenSignedMode_whenConsumedTwice_thenSecondRejected() {
+		final InviteToken invite = inviteTokenManager.find(inviteTokenManager.issue(TestData.defaultTenant, Set.of(TestData.defaultRole.getId()))).get();
+		
+		assertThat(inviteTokenManager.consume(invite)).isTrue();
+		assertThat(inviteTokenManager.consume(invite)).isFalse();
+	}
+}
@@ -0,0 +1,151 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.repository.StoredAuthorizationRepository;
+
+@SpringBootTest(properties = "authorization.store=jdbc")
+@ContextConfiguration(initializers = {JdbcAuthorizationStoreIntegrationTest.Initializer.class})
+@Testcontainers
+public class JdbcAuthorizationStoreIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private OAuth2AuthorizationService authorizationService;
+	@Autowired private RegisteredClientRepository clientRepo;
+	@Autowired private StoredAuthorizationRepository authorizationRepo;
+	@Autowired private JobScheduler jobScheduler;
+	
+	@Test
+	public void whenSave_thenFindByEveryTokenAndRestoreAuthorization() {
+		assertThat(authorizationService).isInstanceOf(JdbcAuthorizationStore.class);
+		authorizationService.save(authorization("a1", Instant.now().plus(Duration.ofHours(1))));
+		
+		final OAuth2Authorization found = authorizationService.findByToken("a1-access", OAuth2TokenType.ACCESS_TOKEN);
+		assertThat(found.getId()).isEqualTo("a1");
+		assertThat(found.getPrincipalName()).isEqualTo("1");
+		assertThat(found.getAuthorizedScopes()).containsExactly("openid");
+		assertThat(found.getAccessToken().getToken().getScopes()).containsExactly("openid");
+		assertThat(found.getAccessToken().getClaims()).containsEntry("sub", "1");
+		assertThat(found.getToken(OidcIdToken.class).getToken().getSubject()).isEqualTo("1");
+		assertThat(found.<OAuth2AuthorizationRequest>getAttribute(OAuth2AuthorizationRequest.class.getName()).getState())
+				.isEqualTo("a1-state");
+		assertThat(found.<UsernamePasswordAuthenticationToken>getAttribute(Principal.class.getName()).getName()).isEqualTo("1");
+		
+		assertThat(authorizationService.findByToken("a1-code", new OAuth2TokenType(OAuth2ParameterNames.CODE))).isNotNull();
+		assertThat(authorizationService.findByToken("a1-refresh", OAuth2TokenType.REFRESH_TOKEN)).isNotNull();
+		assertThat(authorizationService.findByToken("a1-state", new OAuth2TokenType(OAuth2ParameterNames.STATE))).isNotNull();
+		assertThat(authorizationService.findByToken("a1-state", null)).isNotNull();
+		assertThat(authorizationService.findByToken("a1-refresh", null)).isNotNull();
+		assertThat(authorizationService.findByToken("a1-refresh", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(authorizationService.findById("a1").getRefreshToken().getToken().getTokenValue()).isEqualTo("a1-refresh");
+	}
+	
+	@Test
+	public void givenSavedAuthorization_whenSaveNewAccessToken_thenOldTokenNotFound() {
+		final OAuth2Authorization authorization = authorization("a2", Instant.now().plus(Duration.ofHours(1)));
+		authorizationService.save(authorization);
+		
+		authorizationService.save(OAuth2Authorization.from(authorization)
+				.token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "a2-access-2", Instant.now(),
+						Instant.now().plus(Duration.ofMinutes(5))))
+				.build());
+		
+		assertThat(authorizationService.findByToken("a2-access", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(authorizationService.findByToken("a2-access-2", OAuth2TokenType.ACCESS_TOKEN).getId()).isEqualTo("a2");
+		assertThat(authorizationService.findByToken("a2-refresh", OAuth2TokenType.REFRESH_TOKEN)).isNotNull();
+		
+		authorizationService.remove(authorization);
+		assertThat(authorizationService.findById("a2")).isNull();
+		assertThat(authorizationService.findByToken("a2-refresh", OAuth2TokenType.REFRESH_TOKEN)).isNull();
+	}
+	
+	@Test
+	public void givenExpiredAuthorization_whenRemoveExpiredAuthorizations_thenOnlyExpiredDeleted() {
+		authorizationService.save(authorization("expired", Instant.now().minus(Duration.ofMinutes(1))));
+		authorizationService.save(authorization("valid", Instant.now().plus(Duration.ofHours(1))));
+		
+		jobScheduler.removeExpiredAuthorizations();
+		
+		assertThat(authorizationRepo.existsById("expired")).isFalse();
+		assertThat(authorizationService.findByToken("expired-access", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+		assertThat(authorizationRepo.existsById("valid")).isTrue();
+	}
+	
+	private OAuth2Authorization authorization(final String id, final Instant expiresAt) {
+		final RegisteredClient client = clientRepo.findByClientId("articles-client");
+		final Instant issuedAt = expiresAt.minus(Duration.ofMinutes(5));
+		final OAuth2AuthorizationRequest request = OAuth2AuthorizationRequest.authorizationCode()
+				.authorizationUri("http://localhost:9000/oauth2/authorize")
+				.clientId(client.getClientId())
+				.redirectUri(client.getRedirectUris().iterator().next())
+				.scopes(Set.of("openid"))
+				.state(id + "-state")
+				.additionalParameters(new HashMap<>(Map.of("tenant_id", "1")))
+				.build();
+		final UsernamePasswordAuthenticationToken principal = UsernamePasswordAuthenticationToken.authenticated(
+				new User("1", "", AuthorityUtils.NO_AUTHORITIES), null, AuthorityUtils.NO_AUTHORITIES);
+		
+		return OAuth2Authorization.withRegisteredClient(client)
+				.id(id)
+				.principalName("1")
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.authorizedScopes(Set.of("openid"))
+				.attribute(OAuth2ParameterNames.STATE, id + "-state")
+				.attribute(OAuth2AuthorizationRequest.class.getName(), request)
+				.attribute(Principal.class.getName(), principal)
+				.token(new OAuth2AuthorizationCode(id + "-code", issuedAt, issuedAt.plus(Duration.ofMinutes(1))),
+						metadata -> metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, true))
+				.token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, id + "-access", issuedAt, expiresAt, Set.of("openid")),
+						metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, new HashMap<>(Map.of("sub", "1", "tenant_id", 1))))
+				.refreshToken(new OAuth2RefreshToken(id + "-refresh", issuedAt, expiresAt))
+				.token(new OidcIdToken(id + "-id", issuedAt, expiresAt, new HashMap<>(Map.of("sub", "1"))),
+						metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, new HashMap<>(Map.of("sub", "1"))))
+				.build();
+	}
+}
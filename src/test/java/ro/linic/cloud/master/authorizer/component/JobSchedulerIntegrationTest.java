@@ -0,0 +1,94 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.entity.InviteToken;
+import ro.linic.cloud.master.authorizer.entity.JobLease;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
+import ro.linic.cloud.master.authorizer.repository.JobLeaseRepository;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest(properties = "jobs.expired-tokens.chunk-size=2")
+@ContextConfiguration(initializers = {JobSchedulerIntegrationTest.Initializer.class})
+@Testcontainers
+@Transactional
+public class JobSchedulerIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private JobScheduler jobScheduler;
+	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private JobLeaseRepository leaseRepo;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		TestData.saveData();
+		for (int i = 0; i < 5; i++)
+			saveToken("expired-" + i, Instant.now().minus(Duration.ofHours(1)));
+		saveToken("valid", Instant.now().plus(Duration.ofHours(1)));
+	}
+	
+	@Test
+	public void whenRemoveExpiredInviteTokens_thenOnlyExpiredDeletedInChunks() {
+		jobScheduler.removeExpiredInviteTokens();
+		
+		assertThat(tokenRepo.findAll()).extracting(InviteToken::getToken).containsExactly("valid");
+		assertThat(leaseRepo.findById(JobScheduler.EXPIRED_INVITE_TOKENS_JOB)).isPresent();
+	}
+	
+	@Test
+	public void givenLeaseHeldByOtherNode_whenRemoveExpiredInviteTokens_thenSkipped() {
+		final JobLease lease = new JobLease();
+		lease.setName(JobScheduler.EXPIRED_INVITE_TOKENS_JOB);
+		lease.setOwner("other-node");
+		lease.setLockedUntil(Instant.now().plus(Duration.ofMinutes(5)));
+		leaseRepo.saveAndFlush(lease);
+		
+		jobScheduler.removeExpiredInviteTokens();
+		
+		assertThat(tokenRepo.count()).isEqualTo(6);
+	}
+	
+	private void saveToken(final String token, final Instant expiryDate) {
+		final InviteToken inviteToken = new InviteToken();
+		inviteToken.setToken(token);
+		inviteToken.setTenant(TestData.defaultTenant);
+		inviteToken.setExpiryDate(expiryDate);
+		tokenRepo.save(inviteToken);
+	}
+}
@@ -0,0 +1,112 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.entity.SigningKey;
+import ro.linic.cloud.master.authorizer.repository.SigningKeyRepository;
+
+@SpringBootTest(properties = {"jwk.algorithm=ES256", "jwk.encryption-key=4yMTfbsAFEVC4c50/quj+FpB4H+5qxvaBHpL1NtXzpo="})
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = {JwkKeyRingIntegrationTest.Initializer.class})
+@Testcontainers
+public class JwkKeyRingIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private MockMvc mockMvc;
+	@Autowired private JwkKeyRing keyRing;
+	@Autowired private SigningKeyRepository keyRepo;
+	@Autowired private JwtEncoder jwtEncoder;
+	@Autowired private JwtDecoder jwtDecoder;
+	
+	@Test
+	public void givenEs256_whenEncode_thenSignedWithCurrentKeyAndVerified() {
+		final JwtClaimsSet claims = JwtClaimsSet.builder().subject("1").build();
+		final Jwt jwt = jwtEncoder.encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims));
+		
+		assertThat(jwt.getHeaders().get("alg")).isEqualTo(SignatureAlgorithm.ES256);
+		assertThat(jwt.getHeaders().get("kid")).isEqualTo(keyRing.signingKey().getKeyID());
+		assertThat(jwtDecoder.decode(jwt.getTokenValue()).getSubject()).isEqualTo("1");
+	}
+	
+	@Test
+	public void whenGetJwkSet_thenServePublicKeysWithCacheHeaders() throws Exception {
+		final String etag = mockMvc.perform(get("/oauth2/jwks"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+				.andExpect(jsonPath("$.keys[0].kty").value("EC"))
+				.andExpect(jsonPath("$.keys[0].d").doesNotExist())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		mockMvc.perform(get("/oauth2/jwks").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+	}
+	
+	@Test
+	public void givenSigningKeyDueForRotation_whenRotate_thenPublishNextKeyBeforeItSigns() {
+		final String currentKid = keyRing.signingKey().getKeyID();
+		final SigningKey current = keyRepo.findById(currentKid).get();
+		current.setSigningUntil(Instant.now().plus(Duration.ofHours(1)));
+		current.setPublishedUntil(current.getSigningUntil().plus(Duration.ofDays(1)));
+		keyRepo.save(current);
+		final SigningKey retired = new SigningKey();
+		retired.setKid("retired");
+		retired.setAlgorithm("ES256");
+		retired.setJwk(current.getJwk());
+		retired.setSigningFrom(Instant.now().minus(Duration.ofDays(3)));
+		retired.setSigningUntil(Instant.now().minus(Duration.ofDays(2)));
+		retired.setPublishedUntil(Instant.now().minus(Duration.ofDays(1)));
+		keyRepo.save(retired);
+		
+		keyRing.rotate();
+		
+		final List<SigningKey> keys = keyRepo.findAll().stream().sorted(Comparator.comparing(SigningKey::getSigningFrom)).toList();
+		assertThat(keys).extracting(SigningKey::getKid).hasSize(2).startsWith(currentKid);
+		assertThat(keys.get(1).getSigningFrom()).isEqualTo(keys.get(0).getSigningUntil());
+		assertThat(keys.get(1).getJwk()).doesNotStartWith("{");
+		assertThat(keyRing.signingKey().getKeyID()).isEqualTo(currentKid);
+		assertThat(new String(keyRing.published().json())).contains(currentKid, keys.get(1).getKid());
+	}
+}
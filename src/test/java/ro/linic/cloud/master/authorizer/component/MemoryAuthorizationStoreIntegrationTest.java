@@ -0,0 +1,100 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = "authorization.memory.max-size=2")
+@ContextConfiguration(initializers = {MemoryAuthorizationStoreIntegrationTest.Initializer.class})
+@Testcontainers
+public class MemoryAuthorizationStoreIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private OAuth2AuthorizationService authorizationService;
+	@Autowired private RegisteredClientRepository clientRepo;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Test
+	public void givenFullStore_whenSave_thenEvictBeyondMaxSize() {
+		assertThat(authorizationService).isInstanceOf(MemoryAuthorizationStore.class);
+		for (int i = 0; i < 5; i++)
+			authorizationService.save(authorization("bounded-" + i, Instant.now().plus(Duration.ofHours(1))));
+		
+		long found = 0;
+		for (int i = 0; i < 5; i++)
+			if (authorizationService.findByToken("bounded-" + i + "-access", OAuth2TokenType.ACCESS_TOKEN) != null)
+				found++;
+		assertThat(found).isLessThanOrEqualTo(2);
+		assertThat(meterRegistry.get("cache.size").tag("cache", MemoryAuthorizationStore.CACHE_NAME).gauge().value())
+				.isLessThanOrEqualTo(2);
+		assertThat(meterRegistry.get("authorization.store.lookup").tag("store", "memory").timer().count()).isGreaterThanOrEqualTo(5);
+	}
+	
+	@Test
+	public void whenSaveAndRemove_thenFindByTokenTypeUntilRemoved() {
+		final OAuth2Authorization authorization = authorization("a1", Instant.now().plus(Duration.ofHours(1)));
+		authorizationService.save(authorization);
+		
+		assertThat(authorizationService.findByToken("a1-access", OAuth2TokenType.ACCESS_TOKEN)).isSameAs(authorization);
+		assertThat(authorizationService.findByToken("a1-access", null)).isSameAs(authorization);
+		assertThat(authorizationService.findByToken("a1-state", new OAuth2TokenType(OAuth2ParameterNames.STATE))).isSameAs(authorization);
+		assertThat(authorizationService.findByToken("a1-access", OAuth2TokenType.REFRESH_TOKEN)).isNull();
+		
+		authorizationService.remove(authorization);
+		assertThat(authorizationService.findById("a1")).isNull();
+		assertThat(authorizationService.findByToken("a1-access", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+	}
+	
+	@Test
+	public void givenExpiredTokens_whenFind_thenNotFound() {
+		authorizationService.save(authorization("expired", Instant.now().minus(Duration.ofMinutes(1))));
+		
+		assertThat(authorizationService.findById("expired")).isNull();
+		assertThat(authorizationService.findByToken("expired-access", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+	}
+	
+	private OAuth2Authorization authorization(final String id, final Instant expiresAt) {
+		return OAuth2Authorization.withRegisteredClient(clientRepo.findByClientId("articles-client"))
+				.id(id)
+				.principalName("1")
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.attribute(OAuth2ParameterNames.STATE, id + "-state")
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, id + "-access",
+						expiresAt.minus(Duration.ofMinutes(5)), expiresAt))
+				.build();
+	}
+}
@@ -0,0 +1,131 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.authenticated;
+import static org.springframework.security.test.web.servlet.response.SecurityMockMvcResultMatchers.unauthenticated;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ro.linic.cloud.master.authorizer.entity.MultiUser;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+
+@SpringBootTest(properties = {"password.bcrypt.strength=6", "password.verification.max-wait=PT1S", "password.verification.threads=1"})
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = {PasswordVerifierIntegrationTest.Initializer.class})
+@Testcontainers
+public class PasswordVerifierIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private MockMvc mockMvc;
+	@Autowired private MultiUserRepository userRepo;
+	@Autowired private PasswordVerifier passwordVerifier;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@AfterEach
+	public void cleanup() {
+		userRepo.deleteAll();
+	}
+	
+	@Test
+	public void givenOutdatedHash_whenLogin_thenRehashed() throws Exception {
+		final MultiUser user = userRepo.save(MultiUser.builder()
+				.principals(new HashSet<>(Set.of("login-user")))
+				.password("{noop}secret")
+				.build());
+		final long verifications = meterRegistry.get("password.verification").timer().count();
+		
+		mockMvc.perform(formLogin().user("login-user").password("wrong"))
+			.andExpect(unauthenticated());
+		assertThat(userRepo.findById(user.getId()).get().getPassword()).isEqualTo("{noop}secret");
+		
+		mockMvc.perform(formLogin().user("login-user").password("secret"))
+			.andExpect(authenticated().withUsername(String.valueOf(user.getId())));
+		final String rehashed = userRepo.findById(user.getId()).get().getPassword();
+		assertThat(rehashed).startsWith("{bcrypt}$2a$06$");
+		
+		mockMvc.perform(formLogin().user("login-user").password("secret"))
+			.andExpect(authenticated());
+		assertThat(userRepo.findById(user.getId()).get().getPassword()).isEqualTo(rehashed);
+		// the verifications and the rehash ran on the pool
+		assertThat(meterRegistry.get("password.verification").timer().count()).isEqualTo(verifications + 4);
+	}
+	
+	@Test
+	public void givenWeakerWorkFactor_whenLogin_thenRehashedToConfiguredStrength() throws Exception {
+		final MultiUser user = userRepo.save(MultiUser.builder()
+				.principals(new HashSet<>(Set.of("weak-user")))
+				.password("{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret"))
+				.build());
+		
+		mockMvc.perform(formLogin().user("weak-user").password("secret"))
+			.andExpect(authenticated());
+		assertThat(userRepo.findById(user.getId()).get().getPassword()).startsWith("{bcrypt}$2a$06$");
+	}
+	
+	@Test
+	public void givenVerificationPastDeadline_whenMatches_thenRejected() throws InterruptedException {
+		final String slowHash = "{bcrypt}" + new BCryptPasswordEncoder(15).encode("secret");
+		final double rejected = meterRegistry.get("password.verification.rejected").tag("reason", "deadline").counter().count();
+		
+		assertThatThrownBy(() -> passwordVerifier.encoder().matches("secret", slowHash))
+			.isInstanceOf(AuthenticationServiceException.class);
+		assertThat(meterRegistry.get("password.verification.rejected").tag("reason", "deadline").counter().count())
+			.isEqualTo(rejected + 1);
+		
+		// the hashing cannot be interrupted, wait for it to free the pool for the other tests
+		while (meterRegistry.get("password.verification.active").gauge().value() > 0)
+			Thread.sleep(100);
+	}
+	
+	@Test
+	public void givenPoolSaturated_whenRehash_thenPostponedAndNotSubjectToDeadline() throws InterruptedException {
+		final String slowHash = "{bcrypt}" + new BCryptPasswordEncoder(15).encode("secret");
+		final PasswordEncoder encoder = passwordVerifier.encoder();
+		final Thread slowLogin = new Thread(() -> assertThatThrownBy(() -> encoder.matches("secret", slowHash))
+				.isInstanceOf(AuthenticationServiceException.class));
+		slowLogin.start();
+		while (meterRegistry.get("password.verification.active").gauge().value() == 0)
+			Thread.sleep(10);
+		
+		assertThat(encoder.upgradeEncoding("{noop}secret")).isFalse();
+		
+		slowLogin.join();
+		// the login gave up, but its hashing still occupies the only thread past the deadline
+		assertThat(encoder.encode("secret")).startsWith("{bcrypt}$2a$06$");
+		assertThat(encoder.upgradeEncoding("{noop}secret")).isTrue();
+	}
+}
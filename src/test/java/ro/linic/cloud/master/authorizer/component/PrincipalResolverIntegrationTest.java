@@ -0,0 +1,121 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.entity.MultiUser;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest
+@ContextConfiguration(initializers = {PrincipalResolverIntegrationTest.Initializer.class})
+@Testcontainers
+public class PrincipalResolverIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private PrincipalResolver principalResolver;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private PlatformTransactionManager transactionManager;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		transactionTemplate.executeWithoutResult(status -> TestData.saveData());
+	}
+	
+	@AfterEach
+	public void cleanup() {
+		transactionTemplate.executeWithoutResult(status -> TestData.deleteAllData());
+	}
+	
+	@Test
+	public void givenUnknownPrincipalCached_whenPrincipalAddedToUser_thenResolved() {
+		assertThat(principalResolver.userId("added-principal")).isEmpty();
+		
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			final MultiUser user = userRepo.findById(TestData.defaultUser.getId()).get();
+			user.getPrincipals().add("added-principal");
+			principalResolver.evictUserChanged(user);
+		});
+		
+		assertThat(principalResolver.userId("added-principal")).contains(TestData.defaultUser.getId());
+	}
+	
+	@Test
+	public void givenPrincipalCached_whenPrincipalRemovedFromUser_thenUnknown() {
+		assertThat(principalResolver.userId("user")).contains(TestData.defaultUser.getId());
+		
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			final MultiUser user = userRepo.findById(TestData.defaultUser.getId()).get();
+			user.getPrincipals().remove("user");
+			principalResolver.evictUserChanged(user);
+		});
+		
+		assertThat(principalResolver.userId("user")).isEmpty();
+	}
+	
+	@Test
+	public void givenPrincipalCached_whenUserDeleted_thenUnknown() {
+		assertThat(principalResolver.userId("user")).contains(TestData.defaultUser.getId());
+		assertThat(principalResolver.userId(String.valueOf(TestData.defaultUser.getId()))).contains(TestData.defaultUser.getId());
+		
+		transactionTemplate.executeWithoutResult(status -> userRepo.deleteById(TestData.defaultUser.getId()));
+		
+		assertThat(principalResolver.userId("user")).isEmpty();
+		assertThat(principalResolver.userId(String.valueOf(TestData.defaultUser.getId()))).isEmpty();
+	}
+	
+	@Test
+	public void givenLookupBeforeConcurrentChange_whenLookupCommits_thenNotCached() {
+		final TransactionTemplate concurrentTransaction = new TransactionTemplate(transactionManager);
+		concurrentTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			assertThat(principalResolver.userId("late-principal")).isEmpty();
+			concurrentTransaction.executeWithoutResult(concurrentStatus ->
+			{
+				final MultiUser user = userRepo.findById(TestData.defaultUser.getId()).get();
+				user.getPrincipals().add("late-principal");
+				principalResolver.evictUserChanged(user);
+			});
+		});
+		
+		assertThat(principalResolver.userId("late-principal")).contains(TestData.defaultUser.getId());
+	}
+}
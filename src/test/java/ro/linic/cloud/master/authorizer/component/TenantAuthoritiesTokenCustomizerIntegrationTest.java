@@ -0,0 +1,193 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AuthorizationCodeAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.entity.AuthoritySet;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+@SpringBootTest
+@ContextConfiguration(initializers = {TenantAuthoritiesTokenCustomizerIntegrationTest.Initializer.class})
+@Testcontainers
+@Transactional
+public class TenantAuthoritiesTokenCustomizerIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+
+	private static final RegisteredClient CLIENT = RegisteredClient.withId("1")
+			.clientId("articles-client")
+			.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+			.redirectUri("http://127.0.0.1:8080/login/oauth2/code/articles-client-oidc")
+			.build();
+
+	@Autowired private TenantAuthoritiesTokenCustomizer customizer;
+	@Autowired private TenantDeleter tenantDeleter;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+	}
+
+	@Test
+	public void givenTenantOnAuthorizationRequest_whenCustomize_thenAddTenantAuthorities() {
+		TestData.saveData();
+		TestData.defaultUser.setRoles(new HashSet<>());
+		TestData.defaultUser.getRoles().add(TestData.defaultRole);
+		TestData.defaultUser.getRoles().add(TestData.globalRole);
+		userRepo.flush();
+
+		final Authentication user = new TestingAuthenticationToken(String.valueOf(TestData.defaultUser.getId()), null);
+		final JwtEncodingContext context = accessTokenContext(user,
+				authorization(Map.of("tenant_id", String.valueOf(TestData.defaultTenant.getId()))), null);
+		customizer.customize(context);
+
+		final JwtClaimsSet claims = context.getClaims().build();
+		assertThat(claims.<Integer>getClaim(TenantAuthoritiesTokenCustomizer.TENANT_CLAIM)).isEqualTo(TestData.defaultTenant.getId());
+		assertThat(AuthoritySet.ofMask(claims.<Long>getClaim(TenantAuthoritiesTokenCustomizer.AUTHORITIES_CLAIM)))
+				.isEqualTo(AuthoritySet.ALL_TENANT_AUTHORITIES.union(AuthoritySet.ALL_GLOBAL_AUTHORITIES));
+
+		TestData.deleteAllData();
+	}
+
+	@Test
+	public void givenTenantDeleting_whenCustomize_thenNoTenantAuthorities() {
+		TestData.saveData();
+		TestData.defaultUser.setRoles(new HashSet<>());
+		TestData.defaultUser.getRoles().add(TestData.defaultRole);
+		TestData.defaultUser.getRoles().add(TestData.globalRole);
+		userRepo.flush();
+		tenantDeleter.request(TestData.defaultTenant, "test");
+
+		final Authentication user = new TestingAuthenticationToken(String.valueOf(TestData.defaultUser.getId()), null);
+		final JwtEncodingContext context = accessTokenContext(user,
+				authorization(Map.of("tenant_id", String.valueOf(TestData.defaultTenant.getId()))), null);
+		customizer.customize(context);
+
+		final JwtClaimsSet claims = context.getClaims().build();
+		assertThat(claims.<Long>getClaim(TenantAuthoritiesTokenCustomizer.AUTHORITIES_CLAIM)).isZero();
+
+		TestData.deleteAllData();
+	}
+
+	@Test
+	public void givenTenantOnTokenRequest_whenCustomize_thenTokenRequestTenantWins() {
+		TestData.saveData();
+		Tenant tenant2 = new Tenant();
+		tenant2.setName("Tenant 2");
+		tenant2 = tenantRepo.save(tenant2);
+		userRepo.flush();
+
+		final Authentication user = new TestingAuthenticationToken(String.valueOf(TestData.defaultUser.getId()), null);
+		final OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(CLIENT,
+				ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+		final OAuth2AuthorizationCodeAuthenticationToken grant = new OAuth2AuthorizationCodeAuthenticationToken("code",
+				clientPrincipal, null, Map.of("tenant_id", String.valueOf(tenant2.getId())));
+		final JwtEncodingContext context = accessTokenContext(user,
+				authorization(Map.of("tenant_id", String.valueOf(TestData.defaultTenant.getId()))), grant);
+		customizer.customize(context);
+
+		final JwtClaimsSet claims = context.getClaims().build();
+		assertThat(claims.<Integer>getClaim(TenantAuthoritiesTokenCustomizer.TENANT_CLAIM)).isEqualTo(tenant2.getId());
+		assertThat(claims.<Long>getClaim(TenantAuthoritiesTokenCustomizer.AUTHORITIES_CLAIM)).isZero();
+
+		TestData.deleteAllData();
+	}
+
+	@Test
+	public void givenClientPrincipal_whenCustomize_thenDoNothing() {
+		final OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(CLIENT,
+				ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+		final JwtEncodingContext context = accessTokenContext(clientPrincipal, authorization(Map.of("tenant_id", "1")), null);
+		customizer.customize(context);
+
+		final JwtClaimsSet claims = context.getClaims().build();
+		assertThat(claims.hasClaim(TenantAuthoritiesTokenCustomizer.TENANT_CLAIM)).isFalse();
+		assertThat(claims.hasClaim(TenantAuthoritiesTokenCustomizer.AUTHORITIES_CLAIM)).isFalse();
+	}
+
+	@Test
+	public void givenNoTenant_whenCustomize_thenDoNothing() {
+		final Authentication user = new TestingAuthenticationToken("1", null);
+		final JwtEncodingContext context = accessTokenContext(user, authorization(Map.of()), null);
+		customizer.customize(context);
+
+		final JwtClaimsSet claims = context.getClaims().build();
+		assertThat(claims.hasClaim(TenantAuthoritiesTokenCustomizer.TENANT_CLAIM)).isFalse();
+		assertThat(claims.hasClaim(TenantAuthoritiesTokenCustomizer.AUTHORITIES_CLAIM)).isFalse();
+	}
+
+	private static OAuth2Authorization authorization(final Map<String, Object> authorizationRequestParameters) {
+		final OAuth2AuthorizationRequest authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+				.authorizationUri("http://localhost:9000/oauth2/authorize")
+				.clientId(CLIENT.getClientId())
+				.additionalParameters(authorizationRequestParameters)
+				.build();
+		return OAuth2Authorization.withRegisteredClient(CLIENT)
+				.principalName("user")
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+				.attribute(OAuth2AuthorizationRequest.class.getName(), authorizationRequest)
+				.build();
+	}
+
+	private static JwtEncodingContext accessTokenContext(final Authentication principal, final OAuth2Authorization authorization,
+			final Authentication grant) {
+		final JwtEncodingContext.Builder builder = JwtEncodingContext.with(JwsHeader.with(SignatureAlgorithm.RS256),
+				JwtClaimsSet.builder().subject(principal.getName()))
+				.registeredClient(CLIENT)
+				.principal(principal)
+				.authorization(authorization)
+				.tokenType(OAuth2TokenType.ACCESS_TOKEN)
+				.authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE);
+		if (grant != null)
+			builder.authorizationGrant(grant);
+		return builder.build();
+	}
+}
@@ -0,0 +1,104 @@
+package ro.linic.cloud.master.authorizer.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import jakarta.persistence.EntityManager;
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion.Phase;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantDeletionRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+/**
+ * Not transactional: every chunk commits on its own, and a failing chunk must not roll back the others
+ */
+@SpringBootTest(properties = "jobs.tenant-deletion.interval=PT1H")
+@ContextConfiguration(initializers = {TenantDeleterIntegrationTest.Initializer.class})
+@Testcontainers
+public class TenantDeleterIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private JobScheduler jobScheduler;
+	@Autowired private TenantDeleter tenantDeleter;
+	@Autowired private TenantDeletionRepository deletionRepo;
+	@Autowired private EntityManager entityManager;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		transactionTemplate.executeWithoutResult(status -> TestData.saveData());
+	}
+	
+	@AfterEach
+	public void cleanup() {
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			entityManager.createNativeQuery("DROP TABLE IF EXISTS tenant_deletion_blocker").executeUpdate();
+			deletionRepo.deleteAll();
+			TestData.deleteAllData();
+		});
+	}
+	
+	@Test
+	public void givenFailingTenantRequestedFirst_whenDeleteTenants_thenOtherTenantsStillDeleted() {
+		final Tenant failing = requestDeletion("Failing tenant");
+		final Tenant deleted = requestDeletion("Deleted tenant");
+		// a row referencing the tenant makes its last chunk fail on every run
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			entityManager.createNativeQuery("CREATE TABLE tenant_deletion_blocker (tenant_id integer REFERENCES tenant(id))").executeUpdate();
+			entityManager.createNativeQuery("INSERT INTO tenant_deletion_blocker VALUES (" + failing.getId() + ")").executeUpdate();
+		});
+		
+		jobScheduler.deleteTenants();
+		
+		assertThat(tenantRepo.existsById(failing.getId())).isTrue();
+		assertThat(tenantDeleter.status(failing.getId()).get().getPhase()).isEqualTo(Phase.TENANT);
+		assertThat(tenantRepo.existsById(deleted.getId())).isFalse();
+		assertThat(tenantDeleter.status(deleted.getId()).get().getPhase()).isEqualTo(Phase.DONE);
+	}
+	
+	private Tenant requestDeletion(final String name) {
+		return transactionTemplate.execute(status ->
+		{
+			final Tenant tenant = new Tenant();
+			tenant.setName(name);
+			final Tenant saved = tenantRepo.save(tenant);
+			tenantDeleter.request(saved, "test");
+			return saved;
+		});
+	}
+}
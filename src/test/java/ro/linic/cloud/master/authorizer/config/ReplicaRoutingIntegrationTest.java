@@ -0,0 +1,149 @@
+package ro.linic.cloud.master.authorizer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import ro.linic.cloud.master.authorizer.component.PrincipalResolver;
+import ro.linic.cloud.master.authorizer.component.ReadYourWrites;
+import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+/**
+ * The replica is a separate, empty database, so whatever is read from it shows which database served the read
+ */
+@SpringBootTest
+@ContextConfiguration(initializers = {ReplicaRoutingIntegrationTest.Initializer.class})
+@Testcontainers
+public class ReplicaRoutingIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	@Container
+	private static PostgreSQLContainer<?> replicaContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword(),
+							"replica.datasource.urls=" + replicaContainer.getJdbcUrl())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private ReadYourWrites readYourWrites;
+	@Autowired private PrincipalResolver principalResolver;
+	
+	private Tenant tenant;
+	
+	@BeforeAll
+	public static void createReplicaSchema() throws Exception {
+		try (Connection connection = DriverManager.getConnection(replicaContainer.getJdbcUrl(), replicaContainer.getUsername(), replicaContainer.getPassword());
+				Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS tenant (id integer NOT NULL PRIMARY KEY, name varchar(255) NOT NULL)");
+			statement.execute("CREATE TABLE IF NOT EXISTS multi_user (id integer NOT NULL PRIMARY KEY)");
+			statement.execute("CREATE TABLE IF NOT EXISTS user_principal (multi_user_id integer NOT NULL, principal varchar(255) NOT NULL)");
+			statement.execute("INSERT INTO multi_user VALUES (987654) ON CONFLICT DO NOTHING");
+			statement.execute("INSERT INTO user_principal SELECT 987654, 'replica-principal' "
+					+ "WHERE NOT EXISTS (SELECT 1 FROM user_principal WHERE principal = 'replica-principal')");
+		}
+	}
+	
+	@BeforeEach
+	public void init() {
+		tenant = new Tenant();
+		tenant.setName("Replicated tenant");
+		tenant = tenantRepo.save(tenant);
+	}
+	
+	@AfterEach
+	public void cleanup() {
+		SecurityContextHolder.clearContext();
+		tenantRepo.delete(tenant);
+	}
+	
+	@Test
+	public void givenReadOnlyTransaction_whenRead_thenReadFromReplica() {
+		assertThat(existsInReadOnlyTransaction()).isFalse();
+		assertThat(tenantRepo.findById(tenant.getId())).isEmpty();
+	}
+	
+	@Test
+	public void givenReadWriteTransaction_whenRead_thenReadFromPrimary() {
+		final boolean exists = transactionTemplate.execute(status -> tenantRepo.existsById(tenant.getId()));
+		assertThat(exists).isTrue();
+	}
+	
+	@Test
+	public void givenPrincipalWroteRecently_whenReadOnlyTransaction_thenReadFromPrimary() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null));
+		assertThat(existsInReadOnlyTransaction()).isFalse();
+		
+		readYourWrites.wrote("writer");
+		
+		assertThat(existsInReadOnlyTransaction()).isTrue();
+	}
+	
+	@Test
+	public void givenPrincipal_whenReadWriteTransactionCommits_thenReadFromPrimary() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("committer", null));
+		
+		transactionTemplate.executeWithoutResult(status -> tenantRepo.findById(tenant.getId()).get().setName("Renamed tenant"));
+		
+		assertThat(existsInReadOnlyTransaction()).isTrue();
+	}
+	
+	@Test
+	public void givenPrincipal_whenReadWriteTransactionRollsBack_thenReadFromReplica() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("failed-writer", null));
+		
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			tenantRepo.findById(tenant.getId()).get().setName("Renamed tenant");
+			status.setRollbackOnly();
+		});
+		
+		assertThat(existsInReadOnlyTransaction()).isFalse();
+	}
+	
+	@Test
+	public void givenReadOnlyTransaction_whenPrincipalResolved_thenNotCached() {
+		final TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+		readOnlyTransaction.setReadOnly(true);
+		final Optional<Integer> replicaUserId = readOnlyTransaction.execute(status -> principalResolver.userId("replica-principal"));
+		assertThat(replicaUserId).contains(987654);
+		
+		assertThat(principalResolver.userId("replica-principal")).isEmpty();
+	}
+	
+	private boolean existsInReadOnlyTransaction() {
+		final TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+		readOnlyTransaction.setReadOnly(true);
+		return readOnlyTransaction.execute(status -> tenantRepo.existsById(tenant.getId()));
+	}
+}
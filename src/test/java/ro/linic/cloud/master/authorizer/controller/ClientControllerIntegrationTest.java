@@ -0,0 +1,249 @@
+package ro.linic.cloud.master.authorizer.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.c4_soft.springaddons.security.oauth2.test.annotations.WithOAuth2Login;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.component.ClientSecretCache;
+import ro.linic.cloud.master.authorizer.component.JdbcClientRepository;
+import ro.linic.cloud.master.authorizer.dto.ClientDTO;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = {ClientControllerIntegrationTest.Initializer.class})
+@Testcontainers
+@Transactional
+public class ClientControllerIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private MockMvc mockMvc;
+	@Autowired private I18n i18n;
+	@Autowired private ObjectMapper objectMapper;
+	@Autowired private JdbcClientRepository clientRepository;
+	@Autowired private PasswordEncoder passwordEncoder;
+	@Autowired private MeterRegistry meterRegistry;
+	
+	@Test
+	public void givenUnauthenticated_whenCallApis_thenForbidden() throws Exception {
+    	mockMvc.perform(get("/client"))
+            .andExpect(status().is4xxClientError());
+    	
+    	mockMvc.perform(post("/client"))
+        	.andExpect(status().is4xxClientError());
+    	
+    	mockMvc.perform(delete("/client/articles-client"))
+        	.andExpect(status().is4xxClientError());
+    }
+	
+	@Test
+	public void givenConfiguredClient_whenStarted_thenImported() {
+		final RegisteredClient client = clientRepository.findByClientId("articles-client");
+		
+		assertThat(client).isNotNull();
+		assertThat(client.getId()).isEqualTo("articles-client");
+		assertThat(client.getClientName()).isEqualTo("Articles Client");
+		assertThat(client.getRedirectUris()).containsExactly("http://127.0.0.1:8080/login/oauth2/code/articles-client-oidc");
+		assertThat(client.getScopes()).containsExactly("openid");
+		assertThat(clientRepository.findById("articles-client")).isEqualTo(client);
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenClientExistsOrMissing_whenChangeClient_thenThrowException() throws Exception {
+		final ClientDTO client = new ClientDTO();
+		client.setClientId("articles-client");
+		client.setAuthorizationGrantTypes(Set.of("client_credentials"));
+		
+    	mockMvc.perform(post("/client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(i18n.msg(Messages.ClientExists, "articles-client")));
+    	
+    	mockMvc.perform(put("/client/missing-client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+    		.andExpect(status().isBadRequest())
+    		.andExpect(status().reason(i18n.msg(Messages.ClientMissing, "missing-client")));
+    	
+    	mockMvc.perform(delete("/client/missing-client"))
+			.andExpect(status().isBadRequest())
+			.andExpect(status().reason(i18n.msg(Messages.ClientMissing, "missing-client")));
+    	
+    	client.setClientId("invalid-client");
+    	client.setAuthorizationGrantTypes(Set.of("authorization_code"));
+    	mockMvc.perform(post("/client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+    		.andExpect(status().isBadRequest());
+    }
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenValid_whenManageClient_thenCachedClientChanges() throws Exception {
+		assertThat(clientRepository.findByClientId("managed-client")).isNull();
+		
+		final ClientDTO client = new ClientDTO();
+		client.setClientId("managed-client");
+		client.setClientAuthenticationMethods(Set.of("client_secret_basic"));
+		client.setAuthorizationGrantTypes(Set.of("client_credentials"));
+		client.setScopes(Set.of("read"));
+		
+		MvcResult result = mockMvc.perform(post("/client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+            .andExpect(status().isOk())
+            .andReturn();
+		final ClientDTO created = objectMapper.readValue(result.getResponse().getContentAsString(), ClientDTO.class);
+		assertThat(created.getClientSecret()).isNotBlank();
+		assertThat(created.getClientName()).isEqualTo("managed-client");
+		assertThat(passwordEncoder.matches(created.getClientSecret(), clientRepository.findByClientId("managed-client").getClientSecret())).isTrue();
+		
+		mockMvc.perform(get("/client/managed-client"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.clientSecret").doesNotExist());
+		
+		client.setScopes(Set.of("read", "write"));
+		client.setAccessTokenTimeToLive(Duration.ofMinutes(10));
+		mockMvc.perform(put("/client/managed-client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+            .andExpect(status().isOk());
+		final RegisteredClient updated = clientRepository.findByClientId("managed-client");
+		assertThat(updated.getScopes()).containsExactlyInAnyOrder("read", "write");
+		assertThat(updated.getTokenSettings().getAccessTokenTimeToLive()).isEqualTo(Duration.ofMinutes(10));
+		assertThat(passwordEncoder.matches(created.getClientSecret(), updated.getClientSecret())).isTrue();
+		
+		result = mockMvc.perform(post("/client/managed-client/secret"))
+            .andExpect(status().isOk())
+            .andReturn();
+		final ClientDTO rotated = objectMapper.readValue(result.getResponse().getContentAsString(), ClientDTO.class);
+		assertThat(passwordEncoder.matches(rotated.getClientSecret(), clientRepository.findByClientId("managed-client").getClientSecret())).isTrue();
+		assertThat(passwordEncoder.matches(created.getClientSecret(), clientRepository.findByClientId("managed-client").getClientSecret())).isFalse();
+		
+		mockMvc.perform(delete("/client/managed-client"))
+			.andExpect(status().isOk());
+		assertThat(clientRepository.findByClientId("managed-client")).isNull();
+		assertThat(clientRepository.findById(updated.getId())).isNull();
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenCreatedClient_whenRequestToken_thenIssued() throws Exception {
+		final ClientDTO client = new ClientDTO();
+		client.setClientId("service-client");
+		client.setClientAuthenticationMethods(Set.of("client_secret_basic"));
+		client.setAuthorizationGrantTypes(Set.of("client_credentials"));
+		client.setScopes(Set.of("read"));
+		
+		final MvcResult result = mockMvc.perform(post("/client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+            .andExpect(status().isOk())
+            .andReturn();
+		final ClientDTO created = objectMapper.readValue(result.getResponse().getContentAsString(), ClientDTO.class);
+		
+		mockMvc.perform(post("/oauth2/token")
+				.param("grant_type", "client_credentials")
+				.param("scope", "read")
+				.with(httpBasic("service-client", created.getClientSecret())))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.access_token").isNotEmpty());
+		
+		mockMvc.perform(post("/oauth2/token")
+				.param("grant_type", "client_credentials")
+				.with(httpBasic("service-client", "wrong")))
+			.andExpect(status().isUnauthorized());
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenVerifiedSecret_whenRotateSecret_thenOldSecretRejected() throws Exception {
+		final ClientDTO client = new ClientDTO();
+		client.setClientId("rotated-client");
+		client.setClientAuthenticationMethods(Set.of("client_secret_basic"));
+		client.setAuthorizationGrantTypes(Set.of("client_credentials"));
+		
+		MvcResult result = mockMvc.perform(post("/client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+            .andExpect(status().isOk())
+            .andReturn();
+		final String oldSecret = objectMapper.readValue(result.getResponse().getContentAsString(), ClientDTO.class).getClientSecret();
+		final double hits = secretHits();
+		
+		for (int i = 0; i < 2; i++)
+			mockMvc.perform(post("/oauth2/token")
+					.param("grant_type", "client_credentials")
+					.with(httpBasic("rotated-client", oldSecret)))
+				.andExpect(status().isOk());
+		assertThat(secretHits()).isEqualTo(hits + 1);
+		
+		result = mockMvc.perform(post("/client/rotated-client/secret"))
+            .andExpect(status().isOk())
+            .andReturn();
+		final String newSecret = objectMapper.readValue(result.getResponse().getContentAsString(), ClientDTO.class).getClientSecret();
+		
+		mockMvc.perform(post("/oauth2/token")
+				.param("grant_type", "client_credentials")
+				.with(httpBasic("rotated-client", oldSecret)))
+			.andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/oauth2/token")
+				.param("grant_type", "client_credentials")
+				.with(httpBasic("rotated-client", newSecret)))
+			.andExpect(status().isOk());
+	}
+	
+	private double secretHits() {
+		return meterRegistry.get("cache.gets")
+				.tags("cache", ClientSecretCache.CACHE_NAME, "result", "hit")
+				.functionCounter()
+				.count();
+	}
+}
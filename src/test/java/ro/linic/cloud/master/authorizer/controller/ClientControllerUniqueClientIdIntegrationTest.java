@@ -0,0 +1,97 @@
+package ro.linic.cloud.master.authorizer.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.c4_soft.springaddons.security.oauth2.test.annotations.WithOAuth2Login;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.UncommittedInsert;
+import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.component.JdbcClientRepository;
+import ro.linic.cloud.master.authorizer.dto.ClientDTO;
+
+/**
+ * Races client creations in separate transactions, so the client id check passes and the uniqueness is settled by the unique key
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = {ClientControllerUniqueClientIdIntegrationTest.Initializer.class})
+@Testcontainers
+public class ClientControllerUniqueClientIdIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private MockMvc mockMvc;
+	@Autowired private I18n i18n;
+	@Autowired private ObjectMapper objectMapper;
+	@Autowired private JdbcClientRepository clientRepository;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	
+	@AfterEach
+	public void cleanup() {
+		clientRepository.deleteByClientId("racing-client");
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenSameClientIdCreatedConcurrently_whenCreateClient_thenThrowException() throws Exception {
+		final UncommittedInsert concurrentCreate = UncommittedInsert.start(transactionTemplate, jdbcTemplate, () ->
+				clientRepository.save(RegisteredClient.withId(UUID.randomUUID().toString())
+						.clientId("racing-client")
+						.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+						.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+						.build()));
+		
+		final ClientDTO client = new ClientDTO();
+		client.setClientId("racing-client");
+		client.setAuthorizationGrantTypes(Set.of("client_credentials"));
+		
+    	mockMvc.perform(post("/client")
+    			.contentType(MediaType.APPLICATION_JSON)
+    			.content(objectMapper.writeValueAsString(client)))
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(i18n.msg(Messages.ClientExists, "racing-client")));
+    	assertThat(concurrentCreate.join()).isTrue();
+    	
+    	assertThat(clientRepository.load("racing-client")).isPresent();
+    }
+}
@@ -11,6 +11,9 @@ import static ro.linic.util.commons.PresentationUtils.NEWLINE;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.javers.core.Javers;
+import org.javers.core.metamodel.object.CdoSnapshot;
+import org.javers.repository.jql.QueryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -70,6 +73,7 @@ public class RoleControllerIntegrationTest {
 	@Autowired private TenantRepository tenantRepo;
 	@Autowired private RoleRepository roleRepo;
 	@Autowired private MultiUserRepository userRepo;
+	@Autowired private Javers javers;
 	
 	@BeforeEach
 	public void init() {
@@ -233,6 +237,47 @@ public class RoleControllerIntegrationTest {
             .andExpect(status().isBadRequest())
             .andExpect(status().reason(i18n.msg(Messages.RoleController_RoleExists)));
     	
+    	TestData.deleteAllData();
+    }
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_ROLES")
+	public void givenRoleExistsWithOtherCase_whenCreateRole_thenThrowException() throws Exception {
+		TestData.saveData();
+		
+		final Role newRole = new Role();
+		newRole.setName(TestData.defaultRole.getName().toUpperCase());
+		newRole.setAuthorities(Authority.ALL_TENANT_AUTHORITIES);
+		
+    	mockMvc.perform(post("/role").header("X-TenantID", TestData.defaultTenant.getId())
+    			.content(objectMapper.writeValueAsString(newRole)).contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(i18n.msg(Messages.RoleController_RoleExists)));
+    	
+    	TestData.deleteAllData();
+    }
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_ROLES")
+	public void givenRoleExistsInOtherTenant_whenCreateRole_thenSaveRole() throws Exception {
+		TestData.saveData();
+		Tenant tenant2 = new Tenant();
+		tenant2.setName("Tenant 2");
+		tenant2 = tenantRepo.save(tenant2);
+		
+		final Role newRole = new Role();
+		newRole.setName(TestData.defaultRole.getName());
+		newRole.setAuthorities(Authority.ALL_TENANT_AUTHORITIES);
+		
+    	final MvcResult result = mockMvc.perform(post("/role").header("X-TenantID", tenant2.getId())
+    			.content(objectMapper.writeValueAsString(newRole)).contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn();
+    	final Role roleResult = objectMapper.readValue(result.getResponse().getContentAsString(), Role.class);
+    	
+    	assertThat(roleResult.getTenantId()).isEqualTo(tenant2.getId());
+    	assertThat(roleRepo.existsById(TestData.defaultRole.getId())).isTrue();
+    	
     	TestData.deleteAllData();
     }
 	
@@ -526,6 +571,13 @@ public class RoleControllerIntegrationTest {
             .andExpect(status().isOk());
     	assertThat(roleRepo.existsById(TestData.defaultRole.getId())).isFalse();
     	assertThat(userRepo.existsById(TestData.defaultUser.getId())).isTrue();
+    	assertThat(userRepo.findById(TestData.defaultUser.getId()).get().getRoles())
+    		.extracting(Role::getId)
+    		.doesNotContain(TestData.defaultRole.getId());
+    	
+    	final CdoSnapshot deletion = javers.findSnapshots(QueryBuilder.byInstanceId(TestData.defaultRole.getId(), Role.class).build()).get(0);
+    	assertThat(deletion.isTerminal()).isTrue();
+    	assertThat(deletion.getCommitMetadata().getProperties()).containsEntry(RoleController.REMOVED_FROM_USERS, "1");
     	
     	TestData.deleteAllData();
     }
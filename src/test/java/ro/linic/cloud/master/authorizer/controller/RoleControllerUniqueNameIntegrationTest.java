@@ -0,0 +1,117 @@
+package ro.linic.cloud.master.authorizer.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.c4_soft.springaddons.security.oauth2.test.annotations.WithOAuth2Login;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import ro.linic.cloud.master.authorizer.Messages;
+import ro.linic.cloud.master.authorizer.TestData;
+import ro.linic.cloud.master.authorizer.UncommittedInsert;
+import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.entity.Authority;
+import ro.linic.cloud.master.authorizer.entity.Role;
+import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
+import ro.linic.cloud.master.authorizer.repository.RoleRepository;
+import ro.linic.cloud.master.authorizer.repository.TenantRepository;
+
+/**
+ * Creates the {@link Role#NAME_UNIQUE_INDEX} index the migrations would create, since Flyway is disabled in the tests,
+ * and races role creations in separate transactions, so the name check passes and the uniqueness is settled by the index
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ContextConfiguration(initializers = {RoleControllerUniqueNameIntegrationTest.Initializer.class})
+@Testcontainers
+public class RoleControllerUniqueNameIntegrationTest {
+	@Container
+	private static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("10"));
+	
+	static class Initializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+		@Override
+		public void initialize(final ConfigurableApplicationContext configurableApplicationContext) {
+			TestPropertyValues
+					.of("spring.datasource.url=" + postgresContainer.getJdbcUrl(),
+							"spring.datasource.username=" + postgresContainer.getUsername(),
+							"spring.datasource.password=" + postgresContainer.getPassword())
+					.applyTo(configurableApplicationContext.getEnvironment());
+		}
+	}
+	
+	@Autowired private MockMvc mockMvc;
+	@Autowired private I18n i18n;
+	@Autowired private ObjectMapper objectMapper;
+	@Autowired private EntityManager entityManager;
+	@Autowired private TransactionTemplate transactionTemplate;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	@Autowired private TenantRepository tenantRepo;
+	@Autowired private RoleRepository roleRepo;
+	@Autowired private MultiUserRepository userRepo;
+	
+	@BeforeEach
+	public void init() {
+		TestData.init(tenantRepo, roleRepo, userRepo);
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			entityManager.createNativeQuery("CREATE UNIQUE INDEX IF NOT EXISTS " + Role.NAME_UNIQUE_INDEX
+					+ " ON role (tenant_id, lower(name))").executeUpdate();
+			TestData.saveData();
+		});
+	}
+	
+	@AfterEach
+	public void cleanup() {
+		transactionTemplate.executeWithoutResult(status ->
+		{
+			TestData.deleteAllData();
+			entityManager.createNativeQuery("DROP INDEX " + Role.NAME_UNIQUE_INDEX).executeUpdate();
+		});
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_ROLES")
+	public void givenSameNameCreatedConcurrently_whenCreateRole_thenThrowException() throws Exception {
+		final UncommittedInsert concurrentCreate = UncommittedInsert.start(transactionTemplate, jdbcTemplate, () ->
+		{
+			final Role role = new Role();
+			role.setName("Racing role");
+			role.setTenant(tenantRepo.findById(TestData.defaultTenant.getId()).get());
+			role.setAuthorities(Authority.ALL_TENANT_AUTHORITIES);
+			roleRepo.saveAndFlush(role);
+		});
+		
+		final Role newRole = new Role();
+		newRole.setName("RACING ROLE");
+		newRole.setAuthorities(Authority.ALL_TENANT_AUTHORITIES);
+		
+    	mockMvc.perform(post("/role").header("X-TenantID", TestData.defaultTenant.getId())
+    			.content(objectMapper.writeValueAsString(newRole)).contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(i18n.msg(Messages.RoleController_RoleExists)));
+    	assertThat(concurrentCreate.join()).isTrue();
+    	
+    	assertThat(roleRepo.existsInTenantByName(TestData.defaultTenant.getId(), "racing role", 0)).isTrue();
+    }
+}
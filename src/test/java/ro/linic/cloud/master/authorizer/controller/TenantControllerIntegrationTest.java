@@ -1,6 +1,8 @@
 package ro.linic.cloud.master.authorizer.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,10 +32,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import ro.linic.cloud.master.authorizer.Messages;
 import ro.linic.cloud.master.authorizer.TestData;
 import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.component.JobScheduler;
 import ro.linic.cloud.master.authorizer.entity.Authority;
+import ro.linic.cloud.master.authorizer.entity.InviteToken;
 import ro.linic.cloud.master.authorizer.entity.MultiUser;
 import ro.linic.cloud.master.authorizer.entity.Role;
 import ro.linic.cloud.master.authorizer.entity.Tenant;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion;
+import ro.linic.cloud.master.authorizer.entity.TenantDeletion.Phase;
+import ro.linic.cloud.master.authorizer.repository.InviteTokenRepository;
 import ro.linic.cloud.master.authorizer.repository.MultiUserRepository;
 import ro.linic.cloud.master.authorizer.repository.RoleRepository;
 import ro.linic.cloud.master.authorizer.repository.TenantRepository;
@@ -64,6 +71,8 @@ public class TenantControllerIntegrationTest {
 	@Autowired private TenantRepository tenantRepo;
 	@Autowired private RoleRepository roleRepo;
 	@Autowired private MultiUserRepository userRepo;
+	@Autowired private InviteTokenRepository tokenRepo;
+	@Autowired private JobScheduler jobScheduler;
 	
 	@BeforeEach
 	public void init() {
@@ -77,6 +86,9 @@ public class TenantControllerIntegrationTest {
     	
     	mockMvc.perform(put("/tenant"))
         .andExpect(status().is4xxClientError());
+    	
+    	mockMvc.perform(delete("/tenant"))
+        .andExpect(status().is4xxClientError());
     }
 	
 	@Test
@@ -161,6 +173,61 @@ public class TenantControllerIntegrationTest {
     	final Tenant tenantResult = objectMapper.readValue(result.getResponse().getContentAsString(), Tenant.class);
     	assertThat(tenantResult.getName()).isEqualTo("Changed Name");
     	
+    	TestData.deleteAllData();
+    }
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_TENANTS")
+	public void givenSystemTenant_whenDeleteTenant_thenThrowException() throws Exception {
+		TestData.saveData();
+		
+    	mockMvc.perform(delete("/tenant").header("X-TenantID", TestData.defaultTenant.getId()))
+            .andExpect(status().isBadRequest())
+            .andExpect(status().reason(i18n.msg(Messages.TenantController_SystemTenant)));
+    	
+    	TestData.deleteAllData();
+    }
+	
+	@Test
+	@WithOAuth2Login(authorities = {"CREATE_TENANTS", "MODIFY_TENANT"})
+	public void givenValid_whenDeleteTenant_thenBlockWritesAndDeleteInBackground() throws Exception {
+		TestData.saveData();
+		Tenant tenant2 = new Tenant();
+		tenant2.setName("Tenant 2");
+		tenant2 = tenantRepo.save(tenant2);
+		Role tenant2Role = new Role();
+		tenant2Role.setName("Tenant 2 role");
+		tenant2Role.setTenant(tenant2);
+		tenant2Role.setAuthorities(Authority.ALL_TENANT_AUTHORITIES);
+		tenant2Role = roleRepo.save(tenant2Role);
+		TestData.defaultUser.getRoles().add(tenant2Role);
+		userRepo.saveAndFlush(TestData.defaultUser);
+		final InviteToken inviteToken = new InviteToken();
+		inviteToken.setToken("tenant-2-invite");
+		inviteToken.setTenant(tenant2);
+		tokenRepo.saveAndFlush(inviteToken);
+		
+    	mockMvc.perform(delete("/tenant").header("X-TenantID", tenant2.getId()))
+            .andExpect(status().isAccepted());
+    	mockMvc.perform(put("/tenant").header("X-TenantID", tenant2.getId())
+    			.content("Changed Name"))
+            .andExpect(status().isConflict())
+            .andExpect(status().reason(i18n.msg(Messages.TenantDeleting, tenant2.getId())));
+    	
+    	jobScheduler.deleteTenants();
+    	
+    	final MvcResult result = mockMvc.perform(get("/tenant/deletion").header("X-TenantID", tenant2.getId()))
+            .andExpect(status().isOk())
+            .andReturn();
+    	final TenantDeletion deletion = objectMapper.readValue(result.getResponse().getContentAsString(), TenantDeletion.class);
+    	assertThat(deletion.getPhase()).isEqualTo(Phase.DONE);
+    	assertThat(deletion.getInviteTokensDeleted()).isEqualTo(1);
+    	assertThat(deletion.getRoleAssignmentsDeleted()).isEqualTo(1);
+    	assertThat(deletion.getRolesDeleted()).isEqualTo(1);
+    	assertThat(tenantRepo.existsById(tenant2.getId())).isFalse();
+    	assertThat(tenantRepo.existsById(TestData.defaultTenant.getId())).isTrue();
+    	assertThat(userRepo.existsById(TestData.defaultUser.getId())).isTrue();
+    	
     	TestData.deleteAllData();
     }
 }
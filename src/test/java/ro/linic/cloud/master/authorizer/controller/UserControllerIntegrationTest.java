@@ -9,6 +9,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.time.Instant;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -39,6 +40,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import ro.linic.cloud.master.authorizer.Messages;
 import ro.linic.cloud.master.authorizer.TestData;
 import ro.linic.cloud.master.authorizer.common.I18n;
+import ro.linic.cloud.master.authorizer.dto.PrincipalAuthoritiesDTO;
+import ro.linic.cloud.master.authorizer.dto.PrincipalTenantDTO;
 import ro.linic.cloud.master.authorizer.entity.Authority;
 import ro.linic.cloud.master.authorizer.entity.InviteToken;
 import ro.linic.cloud.master.authorizer.entity.MultiUser;
@@ -276,6 +279,29 @@ public class UserControllerIntegrationTest {
 		TestData.deleteAllData();
 	}
 	
+	@Test
+	@WithOAuth2Login(authorities = "SCOPE_authorities.read")
+	public void givenUnknownPrincipalCached_whenUserCreated_thenReturnAuths() throws Exception {
+		TestData.saveData();
+		final MvcResult unknownResult = mockMvc.perform(get("/user/newPrincipal/authorities").header("X-TenantID", TestData.defaultTenant.getId()))
+				.andExpect(status().isOk())
+				.andReturn();
+		assertThat(objectMapper.readValue(unknownResult.getResponse().getContentAsString(), new TypeReference<Set<Authority>>(){})).isEmpty();
+		
+		final MultiUser newUser = new MultiUser();
+		newUser.setPrincipals(new HashSet<>(Set.of("newPrincipal")));
+		newUser.getRoles().add(TestData.globalRole);
+		userRepo.save(newUser);
+		
+		final MvcResult result = mockMvc.perform(get("/user/newPrincipal/authorities").header("X-TenantID", TestData.defaultTenant.getId()))
+				.andExpect(status().isOk())
+				.andReturn();
+		final Set<Authority> authsResult = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<Set<Authority>>(){});
+		assertThat(authsResult).containsExactlyElementsOf(Authority.ALL_GLOBAL_AUTHORITIES);
+		
+		TestData.deleteAllData();
+	}
+	
 	@Test
 	@WithOAuth2Login(authorities = "SCOPE_authorities.read")
 	public void givenHasGlobalRole_whenUserAuthorities_thenReturnGlobalAuths() throws Exception {
@@ -292,6 +318,91 @@ public class UserControllerIntegrationTest {
 		TestData.deleteAllData();
 	}
 	
+	@Test
+	@WithOAuth2Login
+	public void givenMissingReadScope_whenBatchUserAuthorities_thenForbidden() throws Exception {
+		mockMvc.perform(post("/user/authorities:batch")
+				.content(objectMapper.writeValueAsString(List.of(new PrincipalTenantDTO("user", 1)))).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isForbidden());
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "SCOPE_authorities.read")
+	public void givenMixedPrincipals_whenBatchUserAuthorities_thenReturnAuthsPerPair() throws Exception {
+		TestData.saveData();
+		Tenant tenant2 = new Tenant();
+		tenant2.setName("Tenant 2");
+		tenant2 = tenantRepo.save(tenant2);
+		
+		Role tenant2Role = new Role();
+		tenant2Role.setName("Default role");
+		tenant2Role.setTenant(tenant2);
+		tenant2Role.setAuthorities(Set.of(Authority.VIEW_ROLES));
+		tenant2Role = roleRepo.save(tenant2Role);
+		
+		TestData.defaultUser.getRoles().add(tenant2Role);
+		TestData.defaultUser.getRoles().add(TestData.globalRole);
+		
+		final List<PrincipalTenantDTO> requests = List.of(
+				new PrincipalTenantDTO(String.valueOf(TestData.defaultUser.getId()), TestData.defaultTenant.getId()),
+				new PrincipalTenantDTO("user", tenant2.getId()),
+				new PrincipalTenantDTO("missing", TestData.defaultTenant.getId()));
+		
+		final MvcResult result = mockMvc.perform(post("/user/authorities:batch")
+				.content(objectMapper.writeValueAsString(requests)).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn();
+		final List<PrincipalAuthoritiesDTO> authsResult = objectMapper.readValue(result.getResponse().getContentAsString(),
+				new TypeReference<List<PrincipalAuthoritiesDTO>>(){});
+		
+		assertThat(authsResult).hasSize(3);
+		assertThat(authsResult.get(0).getPrincipal()).isEqualTo(String.valueOf(TestData.defaultUser.getId()));
+		assertThat(authsResult.get(0).getAuthorities()).containsExactlyInAnyOrderElementsOf(Stream.concat(Authority.ALL_TENANT_AUTHORITIES.stream(),
+				Authority.ALL_GLOBAL_AUTHORITIES.stream()).collect(Collectors.toSet()));
+		assertThat(authsResult.get(1).getPrincipal()).isEqualTo("user");
+		assertThat(authsResult.get(1).getTenantId()).isEqualTo(tenant2.getId());
+		assertThat(authsResult.get(1).getAuthorities()).containsExactlyInAnyOrder(Authority.VIEW_ROLES, Authority.CREATE_TENANTS);
+		assertThat(authsResult.get(2).getPrincipal()).isEqualTo("missing");
+		assertThat(authsResult.get(2).getAuthorities()).isEmpty();
+		
+		TestData.deleteAllData();
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = {"SCOPE_authorities.read", "MODIFY_USER_ROLES"})
+	public void givenCachedAuthorities_whenModifyUserRoles_thenReturnNewAuths() throws Exception {
+		TestData.saveData();
+
+		Role newRole = new Role();
+		newRole.setName("New role");
+		newRole.setTenant(TestData.defaultTenant);
+		newRole.setAuthorities(new HashSet<>(Set.of(Authority.VIEW_ROLES)));
+		newRole = roleRepo.save(newRole);
+
+		MultiUser userToChange = new MultiUser();
+		userToChange.setPrincipals(new HashSet<>(Set.of("userToCh")));
+		userToChange.getRoles().add(TestData.defaultRole);
+		userToChange = userRepo.save(userToChange);
+
+		MvcResult result = mockMvc.perform(get("/user/"+userToChange.getId()+"/authorities").header("X-TenantID", TestData.defaultTenant.getId()))
+				.andExpect(status().isOk())
+				.andReturn();
+		Set<Authority> authsResult = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<Set<Authority>>(){});
+		assertThat(authsResult).containsExactlyInAnyOrderElementsOf(Authority.ALL_TENANT_AUTHORITIES);
+
+		mockMvc.perform(put("/user/"+userToChange.getId()+"/roles").header("X-TenantID", TestData.defaultTenant.getId())
+				.content(objectMapper.writeValueAsString(Set.of(newRole.getId()))).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+
+		result = mockMvc.perform(get("/user/"+userToChange.getId()+"/authorities").header("X-TenantID", TestData.defaultTenant.getId()))
+				.andExpect(status().isOk())
+				.andReturn();
+		authsResult = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<Set<Authority>>(){});
+		assertThat(authsResult).containsExactly(Authority.VIEW_ROLES);
+
+		TestData.deleteAllData();
+	}
+
 	@Test
 	@WithOAuth2Login
 	public void givenDefaultUser_whenDeleteMyself_thenDeleteUser() throws Exception {
@@ -901,6 +1012,40 @@ public class UserControllerIntegrationTest {
 		TestData.deleteAllData();
 	}
 	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_USERS")
+	public void givenValidChange_whenInviteToTenantBatch_thenCreateInvites() throws Exception {
+		TestData.saveData();
+		
+		final String tokens = mockMvc.perform(post("/user/invite:batch").header("X-TenantID", TestData.defaultTenant.getId())
+				.param("count", "5")
+				.content(objectMapper.writeValueAsString(Set.of(TestData.defaultRole.getId()))).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		
+		assertThat(tokens.lines()).hasSize(5).doesNotHaveDuplicates();
+		assertThat(tokenRepo.findAllById(tokens.lines().toList()))
+				.hasSize(5)
+				.allSatisfy(token ->
+				{
+					assertThat(token.getTenant()).isEqualTo(TestData.defaultTenant);
+					assertThat(token.getRoles()).containsExactly(TestData.defaultRole.getId());
+				});
+		
+		tokenRepo.deleteAll();
+		TestData.deleteAllData();
+	}
+	
+	@Test
+	@WithOAuth2Login(authorities = "CREATE_USERS")
+	public void givenCountTooLarge_whenInviteToTenantBatch_thenThrowException() throws Exception {
+		mockMvc.perform(post("/user/invite:batch").header("X-TenantID", 1)
+				.param("count", "1001")
+				.content(objectMapper.writeValueAsString(Set.of(1L))).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(status().reason(i18n.msg(Messages.UserController_InviteCountInvalid, 1000)));
+	}
+	
 	@Test
 	@WithOAuth2Login
 	public void givenTokenMissing_whenAcceptInvite_thenThrowException() throws Exception {